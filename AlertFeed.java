@@ -0,0 +1,408 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Pages the rows of one feed published by {@link AlertsFragment}. Each emission of raw lines
+ * replaces the snapshot being paged; only the rows in the loaded window are ever parsed.
+ *
+ * <p>Feeds are cached per geohash tile in {@link FeedCache}. Opening a feed pages the cached
+ * rows straight away and keeps showing them while the network copy loads, and a failed load
+ * leaves them in place rather than replacing them with an error row.
+ *
+ * <p>A feed can also {@link #follow} its node in the Realtime Database. Once the stream has
+ * delivered rows it is the feed's source: its changes are merged into the keyed rows being
+ * paged and the cache row by row, and whole-list emissions are ignored until the stream fails.
+ * Streamed rows take their ids from their child keys. Pages are only reloaded when rows are
+ * added or removed, or a row that has been loaded changes.
+ *
+ * <p>Traffic alerts are also folded into {@link CongestionAggregator} as they arrive; of a
+ * whole-list emission, only the lines that weren't in the previous one are parsed for it. Each
+ * alert carries its location's score from when its page was loaded. While the list is shown,
+ * pages are reloaded every {@link #CONGESTION_REFRESH_MS} so decaying scores stay current;
+ * only rows whose score changed are rebound.
+ */
+final class AlertFeed implements AlertStream.Listener {
+
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 30;
+    private static final int INITIAL_LOAD_SIZE = 60;
+    private static final int MAX_SIZE = 150;      // Rows kept in memory; far pages are dropped
+    private static final int JUMP_THRESHOLD = 300; // Fast scrolls this far reload around the target
+    static final long CONGESTION_REFRESH_MS = 60_000;
+
+    static final PagingConfig PAGING_CONFIG = new PagingConfig(
+            PAGE_SIZE, PREFETCH_DISTANCE, true, INITIAL_LOAD_SIZE, MAX_SIZE, JUMP_THRESHOLD);
+
+    // Single thread so snapshots are taken and pages loaded in the order they were asked for
+    static final ListeningExecutorService PARSER = MoreExecutors.listeningDecorator(
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "feed-parser");
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    private static final String UNKNOWN_TILE = "";
+    private static final String TAG = "AlertFeed";
+
+    private final FeedCache cache;
+    private final CongestionAggregator congestion = CongestionAggregator.getInstance();
+    private final int type;
+    private final LiveData<PagingData<FeedItem>> pages;
+    private FeedSource snapshot = FeedSource.EMPTY; // Guarded by this, with pagingSource
+    private FeedPagingSource pagingSource;
+    private volatile long shownAt; // From Metrics.start(), for the list's update time
+    private String tile; // Only touched on the parser thread
+    private boolean showingCache;
+    private Set<String> submitted = Collections.emptySet(); // Lines of the last whole-list emission
+    private final StreamedFeedSource streamed; // Parser thread
+    private boolean streaming;
+
+    /**
+     * @param tile geohash tile the feed is for, or null to reopen the last tile cached
+     */
+    AlertFeed(Context context, int type, @Nullable String tile) {
+        this.cache = FeedCache.getInstance(context);
+        this.type = type;
+        this.streamed = new StreamedFeedSource(type);
+        this.pages = PagingLiveData.getLiveData(new Pager<>(PAGING_CONFIG, () -> {
+            // With show(), so a snapshot is never replaced between reading it and publishing its source
+            synchronized (this) {
+                pagingSource = new FeedPagingSource(snapshot, PARSER);
+                return pagingSource;
+            }
+        }));
+        PARSER.execute(() -> openCached(tile));
+    }
+
+    private void openCached(@Nullable String requestedTile) {
+        long now = System.currentTimeMillis();
+        tile = requestedTile != null ? requestedTile : cache.lastTile(type, now);
+        if (tile == null) {
+            tile = UNKNOWN_TILE;
+        }
+        FeedSource cached = cache.source(tile, type, now);
+        if (cached.count() > 0) {
+            showingCache = true;
+            show(cached);
+        }
+    }
+
+    LiveData<PagingData<FeedItem>> getPages() {
+        return pages;
+    }
+
+    /**
+     * When rows were last handed to paging, as from {@link Metrics#start()}, or 0 if that has
+     * already been taken; each update is timed once.
+     */
+    long takeShownAt() {
+        long start = shownAt;
+        shownAt = 0;
+        return start;
+    }
+
+    /**
+     * Streams the feed's node for {@code tile} while {@code owner} is started.
+     */
+    void follow(LifecycleOwner owner, String tile) {
+        AlertStream stream = new AlertStream(FirebaseDatabase.getInstance().getReference(path(type, tile)), this);
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                stream.start();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                stream.stop();
+            }
+        });
+    }
+
+    static String path(int type, String tile) {
+        return "feeds/" + (type == FeedParser.TYPE_TRAFFIC ? "traffic" : "stations") + "/" + tile;
+    }
+
+    @Override
+    public void onChanges(Map<String, String> changes) {
+        PARSER.execute(() -> {
+            long now = System.currentTimeMillis();
+            boolean reload = !streaming;
+            if (!streaming) {
+                // Rows from whole-list emissions have no keys to merge into
+                streaming = true;
+                cache.clear(tile, type);
+            }
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                String line = change.getValue();
+                if (line == null || FeedParser.isMessage(line) || !FeedParser.isRow(line, type)) {
+                    change.setValue(null);
+                    reload |= streamed.remove(change.getKey());
+                } else {
+                    reload |= streamed.put(change.getKey(), line);
+                    ingest(line, now);
+                }
+            }
+            cache.apply(tile, type, changes, now);
+            showingCache = true;
+            if (reload) {
+                show(streamed);
+            }
+        });
+    }
+
+    @Override
+    public void onFailed(DatabaseError error) {
+        AppLog.w(TAG, "Feed stream failed, using whole-list updates: {}", error.getMessage());
+        PARSER.execute(() -> {
+            streaming = false;
+            streamed.clear();
+            submitted = Collections.emptySet();
+        });
+    }
+
+    /**
+     * Replaces the rows being paged with a new emission of raw feed lines.
+     */
+    void submit(List<String> lines) {
+        PARSER.execute(() -> {
+            if (lines == null || streaming) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            Set<String> previous = submitted;
+            submitted = new HashSet<>(lines);
+            if (hasRows(lines)) {
+                for (int i = 0; i < lines.size(); i++) {
+                    if (!previous.contains(lines.get(i))) {
+                        ingest(lines.get(i), now);
+                    }
+                }
+                cache.replace(tile, type, lines, now);
+                showingCache = true;
+                show(cache.source(tile, type, now));
+            } else if (showingCache && hasFailure(lines)) {
+                // Keep the cached rows; they are better than an error row
+            } else {
+                cache.clear(tile, type);
+                showingCache = false;
+                show(new SnapshotFeedSource(lines, type));
+            }
+        });
+    }
+
+    // Alerts already counted but sent again, e.g. after the stream failed, are skipped by the aggregator
+    private void ingest(String line, long now) {
+        if (type != FeedParser.TYPE_TRAFFIC || line == null || FeedParser.isMessage(line)) {
+            return;
+        }
+        FeedItem item = FeedParser.parseLine(line, type);
+        if (item instanceof TrafficAlert) {
+            congestion.add((TrafficAlert) item, now);
+        }
+    }
+
+    /**
+     * Reloads the loaded pages every {@link #CONGESTION_REFRESH_MS} while {@code owner} is
+     * started, so the congestion shown on traffic alerts follows the aggregate.
+     */
+    void refreshCongestion(LifecycleOwner owner) {
+        if (type != FeedParser.TYPE_TRAFFIC) {
+            return;
+        }
+        Handler handler = new Handler(Looper.getMainLooper());
+        Runnable refresh = new Runnable() {
+            @Override
+            public void run() {
+                PARSER.execute(AlertFeed.this::invalidate);
+                handler.postDelayed(this, CONGESTION_REFRESH_MS);
+            }
+        };
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                handler.postDelayed(refresh, CONGESTION_REFRESH_MS);
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                handler.removeCallbacks(refresh);
+            }
+        });
+    }
+
+    private void show(FeedSource source) {
+        shownAt = Metrics.start();
+        streamed.reloaded();
+        synchronized (this) {
+            snapshot = type == FeedParser.TYPE_TRAFFIC ? new ScoredFeedSource(source, congestion) : source;
+        }
+        invalidate();
+    }
+
+    private void invalidate() {
+        FeedPagingSource current;
+        synchronized (this) {
+            current = pagingSource;
+        }
+        if (current != null) {
+            current.invalidate();
+        }
+    }
+
+    private boolean hasRows(List<String> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line != null && !FeedParser.isMessage(line) && FeedParser.isRow(line, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Scores alerts as their page loads, off the main thread, so binding a row stays a few setText calls
+    private static final class ScoredFeedSource implements FeedSource {
+        private final FeedSource rows;
+        private final CongestionAggregator congestion;
+
+        ScoredFeedSource(FeedSource rows, CongestionAggregator congestion) {
+            this.rows = rows;
+            this.congestion = congestion;
+        }
+
+        @Override
+        public int count() {
+            return rows.count();
+        }
+
+        @Override
+        public List<FeedItem> load(int offset, int limit) {
+            List<FeedItem> items = rows.load(offset, limit);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i) instanceof TrafficAlert) {
+                    TrafficAlert alert = (TrafficAlert) items.get(i);
+                    items.set(i, alert.withCongestion(congestion.score(alert.location, now)));
+                }
+            }
+            return items;
+        }
+    }
+
+    /**
+     * The streamed rows by child key, in the order they were added, changed in place as the
+     * stream delivers. Tracks which rows paging has loaded since the last reload, so a change to
+     * any other row needs no reload: it is read as it is whenever its page loads. Parser thread
+     * only, like the loads.
+     */
+    private static final class StreamedFeedSource implements FeedSource {
+        private final int type;
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> lines = new ArrayList<>();
+        private final Map<String, Integer> positions = new HashMap<>();
+        private int loadedFrom;
+        private int loadedTo; // Exclusive; empty when not above loadedFrom
+
+        StreamedFeedSource(int type) {
+            this.type = type;
+        }
+
+        /** Returns whether the pages need reloading to show the change. */
+        boolean put(String key, String line) {
+            Integer position = positions.get(key);
+            if (position == null) {
+                positions.put(key, keys.size());
+                keys.add(key);
+                lines.add(line);
+                return true;
+            }
+            lines.set(position, line);
+            return position >= loadedFrom && position < loadedTo;
+        }
+
+        /** Returns whether the pages need reloading to show the change. */
+        boolean remove(String key) {
+            Integer position = positions.remove(key);
+            if (position == null) {
+                return false;
+            }
+            keys.remove((int) position);
+            lines.remove((int) position);
+            for (int i = position; i < keys.size(); i++) {
+                positions.put(keys.get(i), i);
+            }
+            return true;
+        }
+
+        void clear() {
+            keys.clear();
+            lines.clear();
+            positions.clear();
+        }
+
+        /** Called as the pages are reloaded; nothing has been loaded from the new ones yet. */
+        void reloaded() {
+            loadedFrom = 0;
+            loadedTo = 0;
+        }
+
+        @Override
+        public int count() {
+            return keys.size();
+        }
+
+        @Override
+        public List<FeedItem> load(int offset, int limit) {
+            if (loadedTo <= loadedFrom) {
+                loadedFrom = offset;
+                loadedTo = offset + limit;
+            } else {
+                loadedFrom = Math.min(loadedFrom, offset);
+                loadedTo = Math.max(loadedTo, offset + limit);
+            }
+            List<FeedItem> items = new ArrayList<>(limit);
+            for (int i = offset; i < offset + limit; i++) {
+                FeedItem item = FeedParser.parseLine(lines.get(i), type);
+                items.add(FeedParser.withId(item, FeedParser.keyId(type, keys.get(i))));
+            }
+            return items;
+        }
+    }
+
+    private static boolean hasFailure(List<String> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line != null && line.startsWith("Failed")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.saveetha.trafficguard;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Follows one feed in the Realtime Database as child-level changes rather than whole lists.
+ * Each child of the feed's node holds one raw feed line under its own key. Changes arriving
+ * within {@link #COALESCE_MS} of each other are delivered as one batch, keyed by child, with
+ * only the latest line per key; a null line means the child was removed.
+ *
+ * <p>Restarting after {@link #stop()} replays the feed; children removed while stopped are
+ * reported as removed once the replay is complete.
+ *
+ * <p>Main thread only.
+ */
+final class AlertStream implements ChildEventListener {
+
+    static final long COALESCE_MS = 250;
+
+    interface Listener {
+        /** One batch of changes, in the order they arrived. Called on the main thread. */
+        void onChanges(Map<String, String> changes);
+
+        /** The subscription was refused, e.g. by the database rules; it is not retried. */
+        void onFailed(DatabaseError error);
+    }
+
+    private final DatabaseReference ref;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    private final Set<String> known = new HashSet<>(); // Keys delivered and not since removed
+    private Set<String> replayed; // Keys seen since start(), until the replay is complete
+    private boolean listening;
+
+    private final Runnable flush = this::flush;
+
+    private final ValueEventListener replayDone = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            // Value events follow the child events for the same data
+            if (replayed == null) {
+                return;
+            }
+            for (Iterator<String> it = known.iterator(); it.hasNext(); ) {
+                String key = it.next();
+                if (!replayed.contains(key)) {
+                    it.remove();
+                    queue(key, null);
+                }
+            }
+            replayed = null;
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            // Reported through the child listener
+        }
+    };
+
+    AlertStream(DatabaseReference ref, Listener listener) {
+        this.ref = ref;
+        this.listener = listener;
+    }
+
+    void start() {
+        if (listening) {
+            return;
+        }
+        listening = true;
+        replayed = new HashSet<>();
+        ref.addChildEventListener(this);
+        ref.addListenerForSingleValueEvent(replayDone);
+    }
+
+    /**
+     * Stops following the feed, delivering any changes still being coalesced.
+     */
+    void stop() {
+        if (!listening) {
+            return;
+        }
+        listening = false;
+        replayed = null;
+        ref.removeEventListener(this);
+        ref.removeEventListener(replayDone);
+        handler.removeCallbacks(flush);
+        flush();
+    }
+
+    @Override
+    public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        String key = snapshot.getKey();
+        known.add(key);
+        if (replayed != null) {
+            replayed.add(key);
+        }
+        queue(key, line(snapshot));
+    }
+
+    @Override
+    public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        queue(snapshot.getKey(), line(snapshot));
+    }
+
+    @Override
+    public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+        known.remove(snapshot.getKey());
+        queue(snapshot.getKey(), null);
+    }
+
+    @Override
+    public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        // Rows keep the order they first arrived in
+    }
+
+    @Override
+    public void onCancelled(@NonNull DatabaseError error) {
+        listening = false;
+        replayed = null;
+        handler.removeCallbacks(flush);
+        pending.clear();
+        listener.onFailed(error);
+    }
+
+    private void queue(String key, @Nullable String line) {
+        pending.remove(key); // Re-inserted so the batch keeps arrival order
+        pending.put(key, line);
+        if (pending.size() == 1) {
+            handler.postDelayed(flush, COALESCE_MS);
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, String> changes = new LinkedHashMap<>(pending);
+        pending.clear();
+        listener.onChanges(changes);
+    }
+
+    @Nullable
+    private static String line(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        return value instanceof String ? (String) value : null;
+    }
+}
@@ -0,0 +1,217 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The app's logging, in place of calling {@link Log} directly. Messages take {@code {}}
+ * placeholders or a {@link Message} lambda and are only built when they are actually written.
+ * Verbose and debug logging exist only in debug builds: {@link #DEBUG} is a compile-time
+ * constant, so R8 drops their bodies from release builds. A trailing {@link Throwable}
+ * argument that no placeholder uses is logged as the exception.
+ *
+ * <p>Everything written is also kept in a small in-memory ring, for {@link #dump} and the
+ * crash log written by {@link #installCrashHandler}. Wrap personal data in {@link #pii} so it
+ * stays out of release logs.
+ */
+public final class AppLog {
+
+    static final boolean DEBUG = BuildConfig.DEBUG;
+    static final int RING_SIZE = 128;
+    static final String CRASH_FILE = "crash-log.txt";
+
+    /** A message built only if it is written. */
+    public interface Message {
+        String get();
+    }
+
+    private static final AtomicReferenceArray<String> RING = new AtomicReferenceArray<>(RING_SIZE);
+    private static final AtomicLong NEXT = new AtomicLong();
+
+    private AppLog() {
+    }
+
+    public static void v(String tag, String message) {
+        if (DEBUG) {
+            write(Log.VERBOSE, tag, message, null);
+        }
+    }
+
+    public static void v(String tag, String format, Object arg) {
+        if (DEBUG) {
+            log(Log.VERBOSE, tag, format, arg);
+        }
+    }
+
+    public static void v(String tag, Message message) {
+        if (DEBUG) {
+            write(Log.VERBOSE, tag, message.get(), null);
+        }
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG) {
+            write(Log.DEBUG, tag, message, null);
+        }
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        if (DEBUG) {
+            log(Log.DEBUG, tag, format, arg);
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (DEBUG) {
+            log(Log.DEBUG, tag, format, arg1, arg2);
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (DEBUG) {
+            log(Log.DEBUG, tag, format, arg1, arg2, arg3);
+        }
+    }
+
+    public static void d(String tag, Message message) {
+        if (DEBUG) {
+            write(Log.DEBUG, tag, message.get(), null);
+        }
+    }
+
+    public static void i(String tag, String message) {
+        write(Log.INFO, tag, message, null);
+    }
+
+    public static void i(String tag, String format, Object arg) {
+        log(Log.INFO, tag, format, arg);
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2) {
+        log(Log.INFO, tag, format, arg1, arg2);
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        log(Log.INFO, tag, format, arg1, arg2, arg3);
+    }
+
+    public static void w(String tag, String message) {
+        write(Log.WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable throwable) {
+        write(Log.WARN, tag, message, throwable);
+    }
+
+    public static void w(String tag, String format, Object arg) {
+        log(Log.WARN, tag, format, arg);
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2) {
+        log(Log.WARN, tag, format, arg1, arg2);
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        log(Log.WARN, tag, format, arg1, arg2, arg3);
+    }
+
+    public static void e(String tag, String message) {
+        write(Log.ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        write(Log.ERROR, tag, message, throwable);
+    }
+
+    public static void e(String tag, String format, Object arg) {
+        log(Log.ERROR, tag, format, arg);
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2) {
+        log(Log.ERROR, tag, format, arg1, arg2);
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        log(Log.ERROR, tag, format, arg1, arg2, arg3);
+    }
+
+    /**
+     * {@code value} in debug builds; a placeholder in release builds, where logs may be read by
+     * anyone with the device.
+     */
+    public static Object pii(Object value) {
+        return DEBUG ? value : "<redacted>";
+    }
+
+    /**
+     * Writes the messages in the ring, oldest first.
+     */
+    public static void dump(PrintWriter out) {
+        long end = NEXT.get();
+        out.println("Recent log (" + Math.min(end, RING_SIZE) + " of " + end + " messages)");
+        for (long i = Math.max(0, end - RING_SIZE); i < end; i++) {
+            String line = RING.get((int) (i % RING_SIZE));
+            if (line != null) {
+                out.println("  " + line);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the crash and the messages leading up to it to {@link #CRASH_FILE} in the app's
+     * files directory before the previous handler, usually the one that kills the process,
+     * runs.
+     */
+    static void installCrashHandler(Context context) {
+        File file = new File(context.getApplicationContext().getFilesDir(), CRASH_FILE);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+                writer.println("Uncaught exception on " + thread.getName() + " at " + System.currentTimeMillis());
+                throwable.printStackTrace(writer);
+                dump(writer);
+            } catch (IOException | RuntimeException e) {
+                Log.e("AppLog", "Failed to write crash log", e);
+            }
+            if (previous != null) {
+                previous.uncaughtException(thread, throwable);
+            }
+        });
+    }
+
+    private static void log(int level, String tag, String format, Object... args) {
+        // Placeholders are filled in order; an unused trailing Throwable is the exception
+        StringBuilder message = new StringBuilder(format.length() + 16 * args.length);
+        int used = 0;
+        int start = 0;
+        int at;
+        while (used < args.length && (at = format.indexOf("{}", start)) >= 0) {
+            message.append(format, start, at).append(args[used++]);
+            start = at + 2;
+        }
+        message.append(format, start, format.length());
+        Throwable throwable = used < args.length && args[args.length - 1] instanceof Throwable
+                ? (Throwable) args[args.length - 1] : null;
+        write(level, tag, message.toString(), throwable);
+    }
+
+    private static void write(int level, String tag, String message, Throwable throwable) {
+        if (throwable == null) {
+            Log.println(level, tag, message);
+        } else {
+            Log.println(level, tag, message + '\n' + Log.getStackTraceString(throwable));
+        }
+        String line = System.currentTimeMillis() + " " + "??VDIWEA".charAt(level) + "/" + tag + ": " + message
+                + (throwable != null ? " (" + throwable + ")" : "");
+        RING.set((int) (NEXT.getAndIncrement() % RING_SIZE), line);
+    }
+}
@@ -0,0 +1,164 @@
+package com.saveetha.trafficguard;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.GoogleAuthProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Firebase sign-in calls as futures whose results are delivered off the main thread. A request
+ * made while an identical one is still in flight joins it instead of starting another, and
+ * every request fails with a {@link java.util.concurrent.TimeoutException} after
+ * {@link #TIMEOUT_SECONDS}. Firebase carries on with a request that timed out; a sign-in that
+ * succeeds after its caller was told it failed is signed out again.
+ */
+final class AuthRepository {
+
+    static final long TIMEOUT_SECONDS = 20;
+
+    private static final String TAG = "AuthRepository";
+
+    // Completes Firebase tasks and times them out; never runs UI code
+    private static final ScheduledExecutorService AUTH = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auth");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static AuthRepository instance;
+
+    static synchronized AuthRepository getInstance() {
+        if (instance == null) {
+            instance = new AuthRepository(FirebaseAuth.getInstance());
+        }
+        return instance;
+    }
+
+    private static final Metrics.Counter JOINED = Metrics.counter("auth.joined");
+    private static final Metrics.Counter LATE_SIGN_IN = Metrics.counter("auth.lateSignIn");
+
+    private final FirebaseAuth auth;
+    private final Map<String, ListenableFuture<?>> inFlight = new HashMap<>();
+    // The user the last successful sign-in reported, if not signed out since
+    private String signedInUid;
+
+    private AuthRepository(FirebaseAuth auth) {
+        this.auth = auth;
+    }
+
+    /**
+     * Signs in with email and password; completes with the signed-in user.
+     */
+    ListenableFuture<FirebaseUser> signIn(String email, String password) {
+        return signInFlight("password:" + email + ":" + password.hashCode(),
+                () -> auth.signInWithEmailAndPassword(email, password)
+                        .onSuccessTask(AUTH, result -> Tasks.forResult(auth.getCurrentUser())));
+    }
+
+    /**
+     * Signs in with a Google ID token; completes with the signed-in user.
+     */
+    ListenableFuture<FirebaseUser> signInWithGoogle(String idToken) {
+        return signInFlight("google:" + idToken,
+                () -> auth.signInWithCredential(GoogleAuthProvider.getCredential(idToken, null))
+                        .onSuccessTask(AUTH, result -> Tasks.forResult(auth.getCurrentUser())));
+    }
+
+    ListenableFuture<Void> sendPasswordReset(String email) {
+        return singleFlight("reset:" + email, () -> auth.sendPasswordResetEmail(email), null);
+    }
+
+    void signOut() {
+        synchronized (this) {
+            signedInUid = null;
+        }
+        auth.signOut();
+    }
+
+    private ListenableFuture<FirebaseUser> signInFlight(String key, Request<FirebaseUser> request) {
+        ListenableFuture<FirebaseUser> signedIn = singleFlight(key, request, this::undoLateSignIn);
+        Futures.addCallback(signedIn, new FutureCallback<FirebaseUser>() {
+            @Override
+            public void onSuccess(FirebaseUser user) {
+                synchronized (AuthRepository.this) {
+                    signedInUid = user != null ? user.getUid() : null;
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        }, AUTH);
+        return signedIn;
+    }
+
+    /**
+     * Runs for a sign-in that succeeded after it timed out. Its caller was told it failed, so it
+     * is signed out, unless a later sign-in has been reported for the same user meanwhile.
+     */
+    private synchronized void undoLateSignIn(FirebaseUser user) {
+        if (user != null && !user.getUid().equals(signedInUid)) {
+            LATE_SIGN_IN.increment();
+            AppLog.w(TAG, "Signing out {} after a sign-in that timed out", AppLog.pii(user.getUid()));
+            auth.signOut();
+        }
+    }
+
+    /**
+     * @param late given the result of a request that succeeded after it timed out, or null to
+     *             ignore such results
+     */
+    private synchronized <T> ListenableFuture<T> singleFlight(String key, Request<T> request, Late<T> late) {
+        @SuppressWarnings("unchecked")
+        ListenableFuture<T> running = (ListenableFuture<T>) inFlight.get(key);
+        if (running != null) {
+            JOINED.increment();
+            return Futures.nonCancellationPropagating(running);
+        }
+        long start = Metrics.start();
+        SettableFuture<T> result = SettableFuture.create();
+        request.start().addOnCompleteListener(AUTH, task -> {
+            if (task.isSuccessful()) {
+                // Only fails to set once the timeout has cancelled it
+                if (!result.set(task.getResult()) && late != null) {
+                    late.arrived(task.getResult());
+                }
+            } else {
+                result.setException(task.getException() != null
+                        ? task.getException() : new IllegalStateException("Auth request failed"));
+            }
+        });
+        ListenableFuture<T> timed = Futures.withTimeout(result, TIMEOUT_SECONDS, TimeUnit.SECONDS, AUTH);
+        inFlight.put(key, timed);
+        timed.addListener(() -> {
+            synchronized (AuthRepository.this) {
+                inFlight.remove(key, timed);
+            }
+            // Keys start with the kind of request, e.g. "google:"
+            if (start != 0) {
+                Metrics.histogram("auth." + key.substring(0, key.indexOf(':'))).recordSince(start);
+            }
+        }, AUTH);
+        // Callers may cancel their copy without cancelling it for anyone who joined
+        return Futures.nonCancellationPropagating(timed);
+    }
+
+    private interface Request<T> {
+        Task<T> start();
+    }
+
+    private interface Late<T> {
+        void arrived(T result);
+    }
+}
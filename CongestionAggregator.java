@@ -0,0 +1,269 @@
+package com.saveetha.trafficguard;
+
+import java.util.Arrays;
+
+/**
+ * Folds traffic alerts into running congestion figures per road segment, keyed by the alert's
+ * location. For each segment it keeps how many reports of each {@link TrafficAlert.Status}
+ * arrived in the last {@link #WINDOW_MS}, a severity that decays with a time constant of
+ * {@link #DECAY_MS}, and when the segment was last reported.
+ *
+ * <p>Everything lives in primitive arrays: segment names are looked up in an open-addressing
+ * table, and each segment's recent reports sit in a fixed ring of {@link #RING} entries, so
+ * adding a report and reading a score are O(1) and allocate nothing once the segment exists.
+ * A report seen again, as happens when a whole feed is re-sent, is only counted once while it
+ * is still in the window; one still being sent after that counts as a new report. Segments
+ * not reported for {@link #IDLE_MS} are dropped, so the table only holds roads in recent
+ * feeds.
+ *
+ * <p>Thread-safe; report times are when the alert was ingested, in wall-clock millis.
+ */
+public final class CongestionAggregator {
+
+    static final long WINDOW_MS = 30 * 60 * 1000L;
+    static final long DECAY_MS = 20 * 60 * 1000L;
+    static final int RING = 32;
+    static final double MAX_SEVERITY = 4; // Scores 98; more reports can't make a road worse than jammed
+    // Past WINDOW_MS, and long enough for MAX_SEVERITY to decay to a score of 0
+    static final long IDLE_MS = 7 * DECAY_MS;
+
+    private static final int STATUSES = TrafficAlert.Status.values().length;
+    private static final int INITIAL_SEGMENTS = 64;
+
+    private static CongestionAggregator instance;
+
+    public static synchronized CongestionAggregator getInstance() {
+        if (instance == null) {
+            instance = new CongestionAggregator();
+        }
+        return instance;
+    }
+
+    // Segment name -> slot, linear probing; table length is a power of two, at most half full
+    private String[] tableKeys = new String[INITIAL_SEGMENTS * 2];
+    private int[] tableSlots = new int[INITIAL_SEGMENTS * 2];
+    private int segments;
+    private long sweptAt; // When idle segments were last dropped
+
+    // Per slot
+    private String[] slotKeys = new String[INITIAL_SEGMENTS];
+    private int[] counts = new int[INITIAL_SEGMENTS * STATUSES]; // Reports in the window, by status
+    private double[] severity = new double[INITIAL_SEGMENTS];    // As of severityAt
+    private long[] severityAt = new long[INITIAL_SEGMENTS];
+    private long[] lastSeen = new long[INITIAL_SEGMENTS];
+    private int[] head = new int[INITIAL_SEGMENTS];  // Oldest report in the ring
+    private int[] size = new int[INITIAL_SEGMENTS];
+
+    // Per slot, RING entries each
+    private long[] ringIds = new long[INITIAL_SEGMENTS * RING];
+    private long[] ringTimes = new long[INITIAL_SEGMENTS * RING];
+    private byte[] ringStatus = new byte[INITIAL_SEGMENTS * RING];
+
+    CongestionAggregator() {
+    }
+
+    /**
+     * Adds one report. Returns false if the same alert is already counted for its segment.
+     */
+    public synchronized boolean add(TrafficAlert alert, long now) {
+        if (now - sweptAt > WINDOW_MS) {
+            sweep(now);
+        }
+        int slot = slot(alert.location, true);
+        int base = slot * RING;
+        expire(slot, now); // So an alert still listed after the window counts again
+        for (int i = 0, n = size[slot]; i < n; i++) {
+            if (ringIds[base + (head[slot] + i) % RING] == alert.id) {
+                return false;
+            }
+        }
+        if (size[slot] == RING) {
+            drop(slot); // Ring full: the oldest report leaves the window early
+        }
+        int at = base + (head[slot] + size[slot]) % RING;
+        ringIds[at] = alert.id;
+        ringTimes[at] = now;
+        ringStatus[at] = (byte) alert.status.ordinal();
+        size[slot]++;
+        counts[slot * STATUSES + alert.status.ordinal()]++;
+
+        double decayed = decayed(slot, now);
+        severity[slot] = alert.status == TrafficAlert.Status.CLEAR
+                ? decayed * 0.25
+                : Math.min(MAX_SEVERITY, decayed + weight(alert.status));
+        severityAt[slot] = now;
+        lastSeen[slot] = Math.max(lastSeen[slot], now);
+        return true;
+    }
+
+    /**
+     * Congestion on {@code location} from 0 (clear or unknown) to 100.
+     */
+    public synchronized int score(String location, long now) {
+        int slot = slot(location, false);
+        if (slot < 0) {
+            return 0;
+        }
+        return (int) Math.round(100 * (1 - Math.exp(-decayed(slot, now))));
+    }
+
+    /**
+     * Reports of {@code status} for {@code location} in the last {@link #WINDOW_MS}.
+     */
+    public synchronized int count(String location, TrafficAlert.Status status, long now) {
+        int slot = slot(location, false);
+        if (slot < 0) {
+            return 0;
+        }
+        expire(slot, now);
+        return counts[slot * STATUSES + status.ordinal()];
+    }
+
+    /**
+     * When {@code location} was last reported, or 0 if never.
+     */
+    public synchronized long lastSeen(String location) {
+        int slot = slot(location, false);
+        return slot < 0 ? 0 : lastSeen[slot];
+    }
+
+    private static double weight(TrafficAlert.Status status) {
+        switch (status) {
+            case ACCIDENT:
+                return 1.5;
+            case HEAVY:
+                return 1.0;
+            default:
+                return 0.25;
+        }
+    }
+
+    private double decayed(int slot, long now) {
+        long elapsed = Math.max(0, now - severityAt[slot]);
+        return severity[slot] * Math.exp(-(double) elapsed / DECAY_MS);
+    }
+
+    private void expire(int slot, long now) {
+        while (size[slot] > 0 && now - ringTimes[slot * RING + head[slot]] > WINDOW_MS) {
+            drop(slot);
+        }
+    }
+
+    private void drop(int slot) {
+        int at = slot * RING + head[slot];
+        counts[slot * STATUSES + ringStatus[at]]--;
+        head[slot] = (head[slot] + 1) % RING;
+        size[slot]--;
+    }
+
+    // Drops segments idle for IDLE_MS, moving the rest down so slots stay dense
+    private void sweep(long now) {
+        sweptAt = now;
+        int live = 0;
+        for (int slot = 0; slot < segments; slot++) {
+            if (now - lastSeen[slot] <= IDLE_MS) {
+                if (slot != live) {
+                    move(slot, live);
+                }
+                live++;
+            }
+        }
+        if (live == segments) {
+            return;
+        }
+        Arrays.fill(slotKeys, live, segments, null);
+        segments = live;
+        Arrays.fill(tableKeys, null);
+        for (int slot = 0; slot < segments; slot++) {
+            index(slotKeys[slot], slot);
+        }
+    }
+
+    private void move(int from, int to) {
+        slotKeys[to] = slotKeys[from];
+        System.arraycopy(counts, from * STATUSES, counts, to * STATUSES, STATUSES);
+        severity[to] = severity[from];
+        severityAt[to] = severityAt[from];
+        lastSeen[to] = lastSeen[from];
+        head[to] = head[from];
+        size[to] = size[from];
+        System.arraycopy(ringIds, from * RING, ringIds, to * RING, RING);
+        System.arraycopy(ringTimes, from * RING, ringTimes, to * RING, RING);
+        System.arraycopy(ringStatus, from * RING, ringStatus, to * RING, RING);
+    }
+
+    private int slot(String location, boolean create) {
+        int mask = tableKeys.length - 1;
+        int i = mix(location.hashCode()) & mask;
+        while (tableKeys[i] != null) {
+            if (tableKeys[i].equals(location)) {
+                return tableSlots[i];
+            }
+            i = (i + 1) & mask;
+        }
+        if (!create) {
+            return -1;
+        }
+        int slot = segments++;
+        if (slot == severity.length) {
+            growSegments();
+        }
+        tableKeys[i] = location;
+        tableSlots[i] = slot;
+        slotKeys[slot] = location;
+        // May have held a segment since swept away
+        Arrays.fill(counts, slot * STATUSES, (slot + 1) * STATUSES, 0);
+        severity[slot] = 0;
+        severityAt[slot] = 0;
+        lastSeen[slot] = 0;
+        head[slot] = 0;
+        size[slot] = 0;
+        if (segments * 2 > tableKeys.length) {
+            growTable();
+        }
+        return slot;
+    }
+
+    private void growSegments() {
+        int capacity = severity.length * 2;
+        slotKeys = Arrays.copyOf(slotKeys, capacity);
+        counts = Arrays.copyOf(counts, capacity * STATUSES);
+        severity = Arrays.copyOf(severity, capacity);
+        severityAt = Arrays.copyOf(severityAt, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        head = Arrays.copyOf(head, capacity);
+        size = Arrays.copyOf(size, capacity);
+        ringIds = Arrays.copyOf(ringIds, capacity * RING);
+        ringTimes = Arrays.copyOf(ringTimes, capacity * RING);
+        ringStatus = Arrays.copyOf(ringStatus, capacity * RING);
+    }
+
+    private void growTable() {
+        String[] oldKeys = tableKeys;
+        int[] oldSlots = tableSlots;
+        tableKeys = new String[oldKeys.length * 2];
+        tableSlots = new int[oldKeys.length * 2];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                index(oldKeys[j], oldSlots[j]);
+            }
+        }
+    }
+
+    // Adds a key known not to be in the table
+    private void index(String key, int slot) {
+        int mask = tableKeys.length - 1;
+        int i = mix(key.hashCode()) & mask;
+        while (tableKeys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        tableKeys[i] = key;
+        tableSlots[i] = slot;
+    }
+
+    // Spreads String hashes, which differ mostly in the low bits for similar names
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,172 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The routes the user wants watched, such as the daily commute, kept in preferences as
+ * polylines. Each corridor knows the circle around it, used as its geofence, and the feed
+ * tiles it passes through, so only those tiles are ever fetched for it.
+ */
+public final class CorridorStore {
+
+    static final double DEFAULT_BUFFER_METERS = 300;
+
+    private static final String TAG = "CorridorStore";
+    private static final String PREFS_NAME = "corridors";
+    private static final double METERS_PER_DEGREE = 111320.0;
+    private static final double TILE_SAMPLE_METERS = 1000; // Well under a geohash tile
+
+    /**
+     * A saved route and how far either side of it counts as on it. Immutable.
+     */
+    public static final class Corridor {
+        public final String name;
+        final double[] lats;
+        final double[] lons;
+        public final double bufferMeters;
+        public final double centerLat;
+        public final double centerLon;
+        public final double radiusMeters; // Covers every vertex plus the buffer
+
+        Corridor(String name, double[] lats, double[] lons, double bufferMeters) {
+            this.name = name;
+            this.lats = lats;
+            this.lons = lons;
+            this.bufferMeters = bufferMeters;
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+            double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = 0; i < lats.length; i++) {
+                minLat = Math.min(minLat, lats[i]);
+                maxLat = Math.max(maxLat, lats[i]);
+                minLon = Math.min(minLon, lons[i]);
+                maxLon = Math.max(maxLon, lons[i]);
+            }
+            centerLat = (minLat + maxLat) / 2;
+            centerLon = (minLon + maxLon) / 2;
+            double farthest = 0;
+            for (int i = 0; i < lats.length; i++) {
+                farthest = Math.max(farthest, distanceMeters(centerLat, centerLon, lats[i], lons[i]));
+            }
+            radiusMeters = farthest + bufferMeters;
+        }
+
+        /**
+         * The geohash tiles within the buffer of the route, sampled every
+         * {@link #TILE_SAMPLE_METERS} along it.
+         */
+        Set<String> tiles() {
+            Set<String> tiles = new LinkedHashSet<>();
+            double bufferLat = bufferMeters / METERS_PER_DEGREE;
+            for (int s = 0; s < lats.length; s++) {
+                int e = Math.min(s + 1, lats.length - 1);
+                double length = distanceMeters(lats[s], lons[s], lats[e], lons[e]);
+                int steps = Math.max(1, (int) Math.ceil(length / TILE_SAMPLE_METERS));
+                for (int i = 0; i <= steps; i++) {
+                    double lat = lats[s] + (lats[e] - lats[s]) * i / steps;
+                    double lon = lons[s] + (lons[e] - lons[s]) * i / steps;
+                    double bufferLon = bufferLat / Math.cos(Math.toRadians(lat));
+                    tiles.add(Geohash.tile(lat, lon));
+                    tiles.add(Geohash.tile(lat + bufferLat, lon));
+                    tiles.add(Geohash.tile(lat - bufferLat, lon));
+                    tiles.add(Geohash.tile(lat, lon + bufferLon));
+                    tiles.add(Geohash.tile(lat, lon - bufferLon));
+                }
+            }
+            return tiles;
+        }
+
+        /**
+         * The points of {@code index} within the buffer that have all of {@code requiredFlags};
+         * see {@link GeoIndex#alongCorridor}.
+         */
+        int match(GeoIndex index, int requiredFlags, int[] out) {
+            return index.alongCorridor(lats, lons, bufferMeters, requiredFlags, out);
+        }
+    }
+
+    private static CorridorStore instance;
+
+    public static synchronized CorridorStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new CorridorStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final SharedPreferences prefs;
+    private volatile List<Corridor> corridors;
+
+    private CorridorStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public List<Corridor> all() {
+        List<Corridor> current = corridors;
+        if (current == null) {
+            current = load();
+            corridors = current;
+        }
+        return current;
+    }
+
+    /**
+     * Saves or replaces the corridor called {@code name} along the given vertices.
+     */
+    public void save(String name, double[] lats, double[] lons, double bufferMeters) {
+        if (lats.length == 0 || lats.length != lons.length) {
+            throw new IllegalArgumentException("A corridor needs matching, non-empty vertex arrays");
+        }
+        StringBuilder encoded = new StringBuilder().append(bufferMeters);
+        for (int i = 0; i < lats.length; i++) {
+            encoded.append(';').append(lats[i]).append(',').append(lons[i]);
+        }
+        prefs.edit().putString(name, encoded.toString()).apply();
+        corridors = null;
+    }
+
+    public void remove(String name) {
+        prefs.edit().remove(name).apply();
+        corridors = null;
+    }
+
+    private List<Corridor> load() {
+        List<Corridor> loaded = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!(entry.getValue() instanceof String)) {
+                continue;
+            }
+            String[] parts = ((String) entry.getValue()).split(";");
+            if (parts.length < 2) {
+                continue;
+            }
+            double[] lats = new double[parts.length - 1];
+            double[] lons = new double[parts.length - 1];
+            try {
+                for (int i = 1; i < parts.length; i++) {
+                    int comma = parts[i].indexOf(',');
+                    lats[i - 1] = Double.parseDouble(parts[i].substring(0, comma));
+                    lons[i - 1] = Double.parseDouble(parts[i].substring(comma + 1));
+                }
+                loaded.add(new Corridor(entry.getKey(), lats, lons, Double.parseDouble(parts[0])));
+            } catch (RuntimeException e) {
+                AppLog.w(TAG, "Skipping unreadable corridor {}", AppLog.pii(entry.getKey()), e);
+            }
+        }
+        return Collections.unmodifiableList(loaded);
+    }
+
+    // Equirectangular; fine at corridor scale
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double x = (lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = lat2 - lat1;
+        return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+    }
+}
@@ -0,0 +1,170 @@
+package com.saveetha.trafficguard;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.Random;
+
+/**
+ * Waits for the signed-in user to verify their email address while keeping the number of
+ * {@code reload()} round-trips bounded. The user is checked:
+ * <ul>
+ *   <li>on a backoff schedule, starting at {@link #INITIAL_DELAY_MS} and doubling up to
+ *       {@link #MAX_DELAY_MS} with jitter, for at most {@link #MAX_SCHEDULED_CHECKS} checks;</li>
+ *   <li>as soon as the app comes back to the foreground, which is usually the user returning
+ *       from their mail app;</li>
+ *   <li>instantly when the verification link itself is opened in the app.</li>
+ * </ul>
+ * Must be used on the main thread.
+ */
+final class EmailVerificationWatcher implements DefaultLifecycleObserver {
+
+    interface Listener {
+        void onEmailVerified(FirebaseUser user);
+    }
+
+    static final long INITIAL_DELAY_MS = 3000;
+    static final long MAX_DELAY_MS = 60_000;
+    static final int MAX_SCHEDULED_CHECKS = 20; // About a quarter of an hour; resume checks go on
+
+    private static final String TAG = "EmailVerification";
+    private static final String MODE_VERIFY_EMAIL = "verifyEmail";
+
+    private final FirebaseAuth auth;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final Runnable scheduledCheck = this::scheduledCheck;
+
+    private boolean watching;
+    private boolean checking;   // A reload is in flight
+    private boolean backgrounded;
+    private int scheduledChecks;
+
+    EmailVerificationWatcher(FirebaseAuth auth, Listener listener) {
+        this.auth = auth;
+        this.listener = listener;
+    }
+
+    void start() {
+        if (watching) {
+            return;
+        }
+        watching = true;
+        scheduledChecks = 0;
+        backgrounded = false;
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
+        scheduleNext();
+    }
+
+    void stop() {
+        watching = false;
+        handler.removeCallbacks(scheduledCheck);
+        ProcessLifecycleOwner.get().getLifecycle().removeObserver(this);
+    }
+
+    /**
+     * Confirms verification from a link opened in the app. Applies the link's action code
+     * directly when it carries one, otherwise just checks now. Returns false if the link is not
+     * an email verification link.
+     */
+    boolean handleLink(@Nullable Uri link) {
+        if (!watching || link == null) {
+            return false;
+        }
+        String mode = link.getQueryParameter("mode");
+        String oobCode = link.getQueryParameter("oobCode");
+        if (mode != null && !MODE_VERIFY_EMAIL.equals(mode)) {
+            return false;
+        }
+        if (oobCode == null) {
+            checkNow(); // The continue URL after verifying in the browser
+            return true;
+        }
+        auth.applyActionCode(oobCode).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                // Already used or expired; the account may still be verified
+                AppLog.w(TAG, "Failed to apply verification code", task.getException());
+            }
+            checkNow();
+        });
+        return true;
+    }
+
+    /**
+     * Checks straight away and restarts the backoff.
+     */
+    void checkNow() {
+        if (!watching) {
+            return;
+        }
+        handler.removeCallbacks(scheduledCheck);
+        scheduledChecks = 0;
+        check();
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        if (backgrounded) {
+            backgrounded = false;
+            checkNow();
+        }
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        // Nothing can change while the user is not looking at us, so stop polling until resume
+        backgrounded = true;
+        handler.removeCallbacks(scheduledCheck);
+    }
+
+    private void scheduledCheck() {
+        scheduledChecks++;
+        check();
+    }
+
+    private void check() {
+        FirebaseUser user = auth.getCurrentUser();
+        if (!watching || checking || user == null) {
+            return;
+        }
+        checking = true;
+        user.reload().addOnCompleteListener(task -> {
+            checking = false;
+            if (!watching) {
+                return;
+            }
+            FirebaseUser reloaded = auth.getCurrentUser();
+            if (task.isSuccessful() && reloaded != null && reloaded.isEmailVerified()) {
+                stop();
+                listener.onEmailVerified(reloaded);
+                return;
+            }
+            if (!task.isSuccessful()) {
+                AppLog.w(TAG, "Failed to reload user", task.getException());
+            }
+            scheduleNext();
+        });
+    }
+
+    private void scheduleNext() {
+        if (backgrounded || scheduledChecks >= MAX_SCHEDULED_CHECKS) {
+            return;
+        }
+        long delay = Math.min(MAX_DELAY_MS, INITIAL_DELAY_MS << Math.min(scheduledChecks, 16));
+        // Half fixed, half random, so users who signed up together do not check in lockstep
+        long jittered = delay / 2 + (long) (random.nextDouble() * (delay / 2));
+        handler.removeCallbacks(scheduledCheck);
+        handler.postDelayed(scheduledCheck, jittered);
+    }
+}
@@ -0,0 +1,246 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk copy of the traffic alert and petrol station feeds, keyed by geohash tile and feed
+ * type. Rows are shown straight from here while the network copy is refreshed, and rows older
+ * than {@link #TTL_MILLIS} are neither shown nor kept. All methods do disk I/O; call them off the
+ * main thread.
+ */
+final class FeedCache extends SQLiteOpenHelper {
+
+    static final long TTL_MILLIS = 6 * 60 * 60 * 1000L;
+
+    private static final String DATABASE_NAME = "feed_cache.db";
+    private static final int DATABASE_VERSION = 3;
+
+    private static final String TABLE = "feed_rows";
+    private static final String COL_TILE = "tile";
+    private static final String COL_TYPE = "type";
+    private static final String COL_POSITION = "position";
+    private static final String COL_KEY = "key"; // Child key of a streamed row, null otherwise
+    private static final String COL_ID = "id";   // Row id, unique within the tile and feed
+    private static final String COL_LINE = "line";
+    private static final String COL_FETCHED_AT = "fetched_at";
+
+    // Rows of one tile and feed fetched no earlier than a cutoff
+    private static final String SELECTION =
+            COL_TILE + "=? AND " + COL_TYPE + "=? AND " + COL_FETCHED_AT + ">=?";
+
+    private static FeedCache instance;
+
+    static synchronized FeedCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeedCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FeedCache(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_TILE + " TEXT NOT NULL, "
+                + COL_TYPE + " INTEGER NOT NULL, "
+                + COL_POSITION + " INTEGER NOT NULL, "
+                + COL_KEY + " TEXT, "
+                + COL_ID + " INTEGER NOT NULL, "
+                + COL_LINE + " TEXT NOT NULL, "
+                + COL_FETCHED_AT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COL_TILE + ", " + COL_TYPE + ", " + COL_POSITION + "))");
+        db.execSQL("CREATE INDEX feed_rows_fetched_at ON " + TABLE + " (" + COL_FETCHED_AT + ")");
+        db.execSQL("CREATE UNIQUE INDEX feed_rows_key ON " + TABLE + " (" + COL_TILE + ", " + COL_TYPE + ", " + COL_KEY + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // A cache: dropping it only costs one network fetch
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    /**
+     * Replaces the cached rows of one tile and feed with {@code lines}, skipping status messages
+     * and malformed lines, and evicts rows of any tile that have outlived the TTL. Rows are
+     * stored with the ids {@link FeedParser#parse} would give them.
+     */
+    void replace(String tile, int type, List<String> lines, long now) {
+        List<String> rows = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (line != null && !FeedParser.isMessage(line) && FeedParser.isRow(line, type)) {
+                rows.add(line);
+            }
+        }
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = FeedParser.rowId(rows.get(i), type);
+        }
+        FeedParser.dedupe(ids, ids.length);
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE, COL_TILE + "=? AND " + COL_TYPE + "=?", args(tile, type));
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE + " ("
+                    + COL_TILE + ", " + COL_TYPE + ", " + COL_POSITION + ", " + COL_ID + ", " + COL_LINE + ", " + COL_FETCHED_AT
+                    + ") VALUES (?, ?, ?, ?, ?, ?)");
+            for (int i = 0; i < ids.length; i++) {
+                insert.bindString(1, tile);
+                insert.bindLong(2, type);
+                insert.bindLong(3, i);
+                insert.bindLong(4, ids[i]);
+                insert.bindString(5, rows.get(i));
+                insert.bindLong(6, now);
+                insert.executeInsert();
+            }
+            db.delete(TABLE, COL_FETCHED_AT + "<?", new String[]{Long.toString(now - TTL_MILLIS)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Applies one batch of streamed changes from {@link AlertStream} to the cached rows of one
+     * tile and feed: changed rows keep their position, new rows go after the last row, and a
+     * null line removes the row. Rows are stored with {@link FeedParser#keyId ids from their
+     * keys}. The stream is live, so every row of the tile and feed counts as fetched now;
+     * otherwise rows that haven't changed in a while would fall to the same TTL eviction as
+     * {@link #replace}.
+     */
+    void apply(String tile, int type, Map<String, String> changes, long now) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String keyed = COL_TILE + "=? AND " + COL_TYPE + "=? AND " + COL_KEY + "=?";
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE + " SET "
+                    + COL_LINE + "=?, " + COL_FETCHED_AT + "=? WHERE " + keyed);
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE + " ("
+                    + COL_TILE + ", " + COL_TYPE + ", " + COL_POSITION + ", " + COL_KEY + ", " + COL_ID + ", " + COL_LINE + ", " + COL_FETCHED_AT
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+            long position = -1; // Looked up on the first insert
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                String key = change.getKey();
+                String line = change.getValue();
+                if (line == null) {
+                    db.delete(TABLE, keyed, new String[]{tile, Integer.toString(type), key});
+                    continue;
+                }
+                update.bindString(1, line);
+                update.bindLong(2, now);
+                update.bindString(3, tile);
+                update.bindLong(4, type);
+                update.bindString(5, key);
+                if (update.executeUpdateDelete() > 0) {
+                    continue;
+                }
+                if (position < 0) {
+                    position = DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(" + COL_POSITION + ") + 1, 0) FROM "
+                            + TABLE + " WHERE " + COL_TILE + "=? AND " + COL_TYPE + "=?", args(tile, type));
+                }
+                insert.bindString(1, tile);
+                insert.bindLong(2, type);
+                insert.bindLong(3, position++);
+                insert.bindString(4, key);
+                insert.bindLong(5, FeedParser.keyId(type, key));
+                insert.bindString(6, line);
+                insert.bindLong(7, now);
+                insert.executeInsert();
+            }
+            SQLiteStatement touch = db.compileStatement("UPDATE " + TABLE + " SET " + COL_FETCHED_AT + "=? WHERE "
+                    + COL_TILE + "=? AND " + COL_TYPE + "=? AND " + COL_KEY + " IS NOT NULL");
+            touch.bindLong(1, now);
+            touch.bindString(2, tile);
+            touch.bindLong(3, type);
+            touch.executeUpdateDelete();
+            db.delete(TABLE, COL_FETCHED_AT + "<?", new String[]{Long.toString(now - TTL_MILLIS)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    void clear(String tile, int type) {
+        getWritableDatabase().delete(TABLE, COL_TILE + "=? AND " + COL_TYPE + "=?", args(tile, type));
+    }
+
+    /**
+     * The tile that {@code type} was most recently cached for, or null if nothing is cached.
+     */
+    String lastTile(int type, long now) {
+        Cursor cursor = getReadableDatabase().query(TABLE, new String[]{COL_TILE},
+                COL_TYPE + "=? AND " + COL_FETCHED_AT + ">=?",
+                new String[]{Integer.toString(type), Long.toString(now - TTL_MILLIS)},
+                null, null, COL_FETCHED_AT + " DESC", "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * The cached rows of one tile and feed that are still within the TTL, as of now. The row count
+     * is read once here, so the source stays consistent until it is replaced.
+     */
+    FeedSource source(String tile, int type, long now) {
+        String[] selectionArgs = {tile, Integer.toString(type), Long.toString(now - TTL_MILLIS)};
+        int count = (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE, SELECTION, selectionArgs);
+        return new CachedFeedSource(selectionArgs, type, count);
+    }
+
+    private static String[] args(String tile, int type) {
+        return new String[]{tile, Integer.toString(type)};
+    }
+
+    private final class CachedFeedSource implements FeedSource {
+        private final String[] selectionArgs;
+        private final int type;
+        private final int count;
+
+        CachedFeedSource(String[] selectionArgs, int type, int count) {
+            this.selectionArgs = selectionArgs;
+            this.type = type;
+            this.count = count;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public List<FeedItem> load(int offset, int limit) {
+            List<FeedItem> items = new ArrayList<>(limit);
+            Cursor cursor = getReadableDatabase().query(TABLE, new String[]{COL_ID, COL_LINE}, SELECTION, selectionArgs,
+                    null, null, COL_POSITION, offset + "," + limit);
+            try {
+                while (cursor.moveToNext()) {
+                    FeedItem item = FeedParser.parseLine(cursor.getString(1), type);
+                    long id = cursor.getLong(0);
+                    items.add(item.getId() == id ? item : FeedParser.withId(item, id));
+                }
+            } finally {
+                cursor.close();
+            }
+            // Rows evicted since the count was taken read as status rows, keeping positions stable
+            while (items.size() < limit) {
+                items.add(FeedParser.message("No longer available"));
+            }
+            return items;
+        }
+    }
+}
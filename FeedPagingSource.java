@@ -0,0 +1,76 @@
+package com.saveetha.trafficguard;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.List;
+
+/**
+ * Pages rows out of a {@link FeedSource} by position. Every page reports how many rows lie
+ * before and after it, so the list can show placeholders for rows that are not loaded.
+ */
+final class FeedPagingSource extends ListenableFuturePagingSource<Integer, FeedItem> {
+
+    private static final Metrics.Histogram PAGE_LOAD = Metrics.histogram("feed.pageLoad");
+
+    private final FeedSource source;
+    private final ListeningExecutorService executor;
+
+    FeedPagingSource(FeedSource source, ListeningExecutorService executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Integer, FeedItem>> loadFuture(@NonNull LoadParams<Integer> params) {
+        return executor.submit(() -> {
+            long start = Metrics.start();
+            LoadResult<Integer, FeedItem> result = load(params);
+            PAGE_LOAD.recordSince(start);
+            return result;
+        });
+    }
+
+    private LoadResult<Integer, FeedItem> load(LoadParams<Integer> params) {
+        int count = source.count();
+        Integer key = params.getKey();
+        int start;
+        int end;
+        if (params instanceof LoadParams.Prepend) {
+            // Keys are row offsets; a prepend key is where the loaded page must end
+            end = Math.min(key, count);
+            start = Math.max(0, end - params.getLoadSize());
+        } else {
+            start = key != null ? Math.min(key, count) : 0;
+            end = Math.min(count, start + params.getLoadSize());
+        }
+        List<FeedItem> items = source.load(start, end - start);
+        return new LoadResult.Page<>(items,
+                start > 0 ? start : null,
+                end < count ? end : null,
+                start,
+                count - end);
+    }
+
+    @Nullable
+    @Override
+    public Integer getRefreshKey(@NonNull PagingState<Integer, FeedItem> state) {
+        Integer anchor = state.getAnchorPosition();
+        if (anchor == null) {
+            return null;
+        }
+        // Reload a window centered on what the user was looking at
+        return Math.max(0, anchor - state.getConfig().initialLoadSize / 2);
+    }
+
+    @Override
+    public boolean getJumpingSupported() {
+        return true;
+    }
+}
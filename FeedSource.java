@@ -0,0 +1,31 @@
+package com.saveetha.trafficguard;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Random access to the rows of one feed, read a page at a time by {@link FeedPagingSource}.
+ * Both methods are called on a background thread.
+ */
+interface FeedSource {
+
+    FeedSource EMPTY = new FeedSource() {
+        @Override
+        public int count() {
+            return 0;
+        }
+
+        @Override
+        public List<FeedItem> load(int offset, int limit) {
+            return Collections.emptyList();
+        }
+    };
+
+    int count();
+
+    /**
+     * Returns exactly {@code limit} rows starting at {@code offset}; the range is always within
+     * {@link #count()}.
+     */
+    List<FeedItem> load(int offset, int limit);
+}
@@ -0,0 +1,68 @@
+package com.saveetha.trafficguard;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Recycled view pool shared by the traffic alerts and petrol stations tabs, so holders inflated
+ * for one tab are reused by the other. Holders can also be created ahead of time while the main
+ * thread is idle, so the first scroll does not stall on inflation.
+ */
+public class FeedViewPool extends RecyclerView.RecycledViewPool {
+
+    /**
+     * Implemented by the fragment hosting the tabs (AlertsFragment) to hand out one shared pool.
+     */
+    public interface Host {
+        @NonNull
+        FeedViewPool getFeedViewPool();
+    }
+
+    static final int VIEW_TYPE_ALERT = 1;
+    static final int VIEW_TYPE_STATION = 2;
+    static final int VIEW_TYPE_MESSAGE = 3;
+
+    private static final int MAX_ROWS = 12; // Roughly a screen and a half of rows
+
+    public FeedViewPool() {
+        setMaxRecycledViews(VIEW_TYPE_ALERT, MAX_ROWS);
+        setMaxRecycledViews(VIEW_TYPE_STATION, MAX_ROWS);
+        setMaxRecycledViews(VIEW_TYPE_MESSAGE, 2);
+    }
+
+    /**
+     * Creates holders of {@code viewType} one per idle pass of the main looper, once
+     * {@code recyclerView} is attached, until the pool holds {@code count} of them.
+     * Must be called on the main thread.
+     */
+    public void prewarm(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.Adapter<?> adapter,
+                        int viewType, int count) {
+        int target = Math.min(count, MAX_ROWS);
+        MessageQueue.IdleHandler filler = () -> {
+            if (!recyclerView.isAttachedToWindow() || getRecycledViewCount(viewType) >= target) {
+                return false;
+            }
+            putRecycledView(adapter.createViewHolder(recyclerView, viewType));
+            return getRecycledViewCount(viewType) < target;
+        };
+        if (recyclerView.isAttachedToWindow()) {
+            Looper.myQueue().addIdleHandler(filler);
+            return;
+        }
+        recyclerView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View view) {
+                view.removeOnAttachStateChangeListener(this);
+                Looper.myQueue().addIdleHandler(filler);
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View view) {
+            }
+        });
+    }
+}
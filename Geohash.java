@@ -0,0 +1,53 @@
+package com.saveetha.trafficguard;
+
+/**
+ * Geohash encoding, used to key cached feeds and spatial buckets by map tile.
+ * A precision of 5 characters gives tiles of roughly 4.9 km x 4.9 km.
+ */
+public final class Geohash {
+
+    public static final int TILE_PRECISION = 5;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        char[] hash = new char[precision];
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean evenBit = true; // Bits alternate longitude, latitude, starting with longitude
+        for (int i = 0; i < precision; i++) {
+            int index = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitude >= mid) {
+                        index = index * 2 + 1;
+                        minLon = mid;
+                    } else {
+                        index = index * 2;
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        index = index * 2 + 1;
+                        minLat = mid;
+                    } else {
+                        index = index * 2;
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = BASE32[index];
+        }
+        return new String(hash);
+    }
+
+    public static String tile(double latitude, double longitude) {
+        return encode(latitude, longitude, TILE_PRECISION);
+    }
+}
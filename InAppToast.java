@@ -0,0 +1,186 @@
+package com.saveetha.trafficguard;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ObjectAnimator;
+import android.app.Activity;
+import android.content.Intent;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.LinearInterpolator;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import java.util.ArrayDeque;
+
+/**
+ * The custom toast shown by the login and sign-up screens, drawn inside the activity instead
+ * of as a system toast. The view is inflated once, on the first message, and its animators are
+ * reused for every message after that. Messages that arrive while one is showing are queued;
+ * a message already showing or queued is not queued again, and a repeat of the one showing
+ * just restarts its timer.
+ *
+ * <p>The toast is drawn in the activity's window, so messages wait while another window such as
+ * a dialog has focus; the activity passes its focus changes on. A message raised as the
+ * activity finishes can be {@link #carry carried} to the next one instead.
+ *
+ * <p>Main thread only.
+ */
+final class InAppToast {
+
+    private static final long SLIDE_IN_MS = 100;
+    private static final long SHOW_MS = 1500;
+    private static final int MAX_QUEUED = 3;
+    private static final int MARGIN_END_PX = 16;
+    private static final int MARGIN_BOTTOM_PX = 50;
+    private static final String EXTRA_MESSAGE = "com.saveetha.trafficguard.IN_APP_TOAST";
+
+    private final Activity activity;
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+
+    private View toastView;
+    private TextView textView;
+    private View progressLine;
+    private ObjectAnimator slideIn;
+    private ObjectAnimator progress;
+    private String showing;
+
+    InAppToast(Activity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * Has the activity {@code next} starts show {@code message}; for a message raised just as
+     * this activity finishes, which would otherwise never be seen.
+     */
+    static Intent carry(Intent next, String message) {
+        return next.putExtra(EXTRA_MESSAGE, message);
+    }
+
+    void show(String message) {
+        if (message.equals(showing)) {
+            // Same message again: keep it up a little longer
+            progress.cancel();
+            progress.start();
+            return;
+        }
+        if (showing != null || !activity.hasWindowFocus()) {
+            if (!queue.contains(message)) {
+                if (queue.size() == MAX_QUEUED) {
+                    queue.pollFirst();
+                }
+                queue.addLast(message);
+            }
+            return;
+        }
+        slideIn(message);
+    }
+
+    /**
+     * Shows the message {@link #carry carried} to this activity, if any.
+     */
+    void showCarried(Intent intent) {
+        String message = intent.getStringExtra(EXTRA_MESSAGE);
+        if (message != null) {
+            intent.removeExtra(EXTRA_MESSAGE);
+            show(message);
+        }
+    }
+
+    /**
+     * Shows the messages that waited while another window was in front; call from
+     * {@code onWindowFocusChanged}.
+     */
+    void onWindowFocusChanged(boolean hasFocus) {
+        if (hasFocus && showing == null && !queue.isEmpty()) {
+            slideIn(queue.pollFirst());
+        }
+    }
+
+    /**
+     * Drops queued messages and hides the toast; call from {@code onDestroy}.
+     */
+    void release() {
+        queue.clear();
+        showing = null;
+        if (toastView != null) {
+            slideIn.cancel();
+            progress.removeAllListeners();
+            progress.cancel();
+            toastView.setVisibility(View.GONE);
+        }
+    }
+
+    private void slideIn(String message) {
+        ensureView();
+        display(message);
+        // In from the right edge of the screen content
+        slideIn.setFloatValues(((View) toastView.getParent()).getWidth(), 0f);
+        slideIn.start();
+    }
+
+    private void display(String message) {
+        showing = message;
+        textView.setText(message);
+        progressLine.setScaleX(1f);
+        progressLine.setVisibility(View.VISIBLE);
+        toastView.setVisibility(View.VISIBLE);
+        progress.start();
+    }
+
+    private void onShown() {
+        if (!queue.isEmpty() && activity.hasWindowFocus()) {
+            display(queue.pollFirst());
+        } else {
+            // Anything left waits for the focus to come back
+            showing = null;
+            toastView.setVisibility(View.GONE);
+        }
+    }
+
+    private void ensureView() {
+        if (toastView != null) {
+            return;
+        }
+        ViewGroup content = activity.findViewById(android.R.id.content);
+        toastView = activity.getLayoutInflater().inflate(R.layout.custom_toast, content, false);
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT,
+                Gravity.BOTTOM | Gravity.END);
+        params.setMarginEnd(MARGIN_END_PX);
+        params.bottomMargin = MARGIN_BOTTOM_PX;
+        content.addView(toastView, params);
+        textView = toastView.findViewById(R.id.toast_text);
+        progressLine = toastView.findViewById(R.id.progress_line);
+        progressLine.setPivotX(0f);
+
+        slideIn = ObjectAnimator.ofFloat(toastView, View.TRANSLATION_X, 0f);
+        slideIn.setDuration(SLIDE_IN_MS);
+        slideIn.setInterpolator(new LinearInterpolator());
+
+        progress = ObjectAnimator.ofFloat(progressLine, View.SCALE_X, 1f, 0f);
+        progress.setDuration(SHOW_MS);
+        progress.setInterpolator(new LinearInterpolator());
+        progress.addListener(new AnimatorListenerAdapter() {
+            private boolean cancelled;
+
+            @Override
+            public void onAnimationStart(Animator animation) {
+                cancelled = false;
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                cancelled = true; // Restarted for a repeated message
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (!cancelled) {
+                    onShown();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+/**
+ * Decides where a launch goes: onboarding for new users, otherwise the main screen or login
+ * depending on the cached {@link SessionStore} session. The preferences it reads are loaded
+ * from {@link MyApplication} at process start, so the decision is normally made without
+ * waiting on disk or Firebase.
+ *
+ * <p>The time-to-first-frame this saves is measured by the cold {@code returningUserToLogin} and
+ * {@code signedInUserToFeed} runs of the macrobenchmark's {@code StartupBenchmark}, against a
+ * build from before the router; the {@code startup.routed} histogram has the same on device.
+ */
+final class LaunchRouter {
+
+    static final String PREFS_NAME = "app_prefs";
+    static final String KEY_ONBOARDING_COMPLETED = "onboarding_completed";
+
+    private static final String TAG = "LaunchRouter";
+
+    private LaunchRouter() {
+    }
+
+    /**
+     * Starts loading the preferences, including the cached session; the load itself happens on
+     * a framework thread.
+     */
+    static void preload(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        context.getSharedPreferences(SessionStore.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    static boolean isOnboardingCompleted(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getBoolean(KEY_ONBOARDING_COMPLETED, false);
+    }
+
+    static void markOnboardingCompleted(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putBoolean(KEY_ONBOARDING_COMPLETED, true).apply();
+    }
+
+    /**
+     * Where a returning user goes, or null if onboarding should be shown.
+     */
+    @Nullable
+    static Intent destination(Context context) {
+        return isOnboardingCompleted(context) ? afterOnboarding(context) : null;
+    }
+
+    /**
+     * The main screen for a verified signed-in user, otherwise login.
+     */
+    static Intent afterOnboarding(Context context) {
+        SessionStore.Session session = SessionStore.cached(context);
+        if (session != null && session.emailVerified) {
+            Intent intent = new Intent(context, MainActivity.class);
+            intent.putExtra("email", session.email);
+            intent.putExtra("uid", session.uid);
+            return intent;
+        }
+        // No cached session yet, e.g. the first launch after an update
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        Intent intent;
+        if (currentUser != null && currentUser.isEmailVerified()) {
+            intent = new Intent(context, MainActivity.class);
+            intent.putExtra("email", currentUser.getEmail());
+            intent.putExtra("uid", currentUser.getUid());
+        } else {
+            intent = new Intent(context, LoginActivity.class);
+        }
+        return intent;
+    }
+
+    /**
+     * Logs how long after process start the launch was routed, to compare against the
+     * startup benchmarks.
+     */
+    static void logRouted(Intent destination) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            long sinceStart = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+            Metrics.histogram("startup.routed").record(sinceStart * 1000);
+            AppLog.i(TAG, "Routed to {} {} ms after process start", destination.getComponent().getShortClassName(), sinceStart);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.saveetha.trafficguard;
+
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
+import com.google.firebase.auth.FirebaseAuthInvalidUserException;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the login screen's auth requests through {@link AuthRepository} and publishes their
+ * outcome as {@link State}, so {@link LoginActivity} only renders. Requests outlive
+ * configuration changes; once the screen is gone for good their results are dropped.
+ */
+public class LoginViewModel extends ViewModel {
+
+    private static final String TAG = "LoginViewModel";
+
+    /**
+     * What the login screen shows. {@code message} is shown once; call {@link #messageShown()}
+     * after showing it.
+     */
+    public static final class State {
+        public final boolean loading;
+        @Nullable public final FirebaseUser signedIn;
+        @Nullable public final String message;
+
+        State(boolean loading, @Nullable FirebaseUser signedIn, @Nullable String message) {
+            this.loading = loading;
+            this.signedIn = signedIn;
+            this.message = message;
+        }
+    }
+
+    private static final State IDLE = new State(false, null, null);
+
+    private final AuthRepository repository = AuthRepository.getInstance();
+    private final MutableLiveData<State> state = new MutableLiveData<>(IDLE);
+    private ListenableFuture<?> pending;
+    private volatile boolean cleared;
+
+    public LiveData<State> getState() {
+        return state;
+    }
+
+    public void signIn(String email, String password) {
+        if (isBusy()) {
+            return; // A double tap joins nothing new
+        }
+        run(repository.signIn(email, password), new FutureCallback<FirebaseUser>() {
+            @Override
+            public void onSuccess(FirebaseUser user) {
+                if (user == null) {
+                    AppLog.e(TAG, "Authentication failed: No user found");
+                    publish(new State(false, null, "Authentication failed: No user found"));
+                } else if (!user.isEmailVerified()) {
+                    repository.signOut();
+                    publish(new State(false, null, "Please verify your email before logging in"));
+                } else {
+                    AppLog.d(TAG, "signInWithEmailAndPassword successful, email verified");
+                    publish(new State(false, user, null));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                AppLog.e(TAG, "Authentication failed", t);
+                String message;
+                if (t instanceof FirebaseAuthInvalidCredentialsException) {
+                    message = "Invalid email or password";
+                } else if (t instanceof FirebaseAuthInvalidUserException) {
+                    message = "Email not registered";
+                } else {
+                    message = "Authentication failed: " + describe(t);
+                }
+                publish(new State(false, null, message));
+            }
+        });
+    }
+
+    public void signInWithGoogle(String idToken) {
+        if (isBusy()) {
+            return;
+        }
+        run(repository.signInWithGoogle(idToken), new FutureCallback<FirebaseUser>() {
+            @Override
+            public void onSuccess(FirebaseUser user) {
+                if (user == null) {
+                    AppLog.e(TAG, "Google Sign-In failed: No user found");
+                    publish(new State(false, null, "Google Sign-In failed: No user found"));
+                } else {
+                    AppLog.d(TAG, "Firebase auth with Google successful");
+                    publish(new State(false, user, null));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                AppLog.e(TAG, "Firebase auth with Google failed", t);
+                publish(new State(false, null, "Google Sign-In failed: " + describe(t)));
+            }
+        });
+    }
+
+    public void sendPasswordReset(String email) {
+        if (isBusy()) {
+            return;
+        }
+        run(repository.sendPasswordReset(email), new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                AppLog.d(TAG, "Password reset email sent");
+                publish(new State(false, null, "Password reset email sent"));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                AppLog.e(TAG, "Failed to send password reset email", t);
+                publish(new State(false, null, "Failed to send reset email: " + describe(t)));
+            }
+        });
+    }
+
+    public void messageShown() {
+        State current = state.getValue();
+        if (current != null && current.message != null) {
+            state.setValue(new State(current.loading, current.signedIn, null));
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cleared = true;
+        if (pending != null) {
+            pending.cancel(false); // Firebase finishes the call, but nobody hears about it
+        }
+    }
+
+    private boolean isBusy() {
+        State current = state.getValue();
+        return current != null && current.loading;
+    }
+
+    private <T> void run(ListenableFuture<T> request, FutureCallback<T> callback) {
+        pending = request;
+        state.setValue(new State(true, null, null));
+        Futures.addCallback(request, callback, MoreExecutors.directExecutor());
+    }
+
+    // Results arrive on the auth thread
+    private void publish(State next) {
+        if (!cleared) {
+            state.postValue(next);
+        }
+    }
+
+    private static String describe(Throwable t) {
+        if (t instanceof TimeoutException) {
+            return "timed out, check your connection";
+        }
+        return t != null && t.getMessage() != null ? t.getMessage() : "unknown";
+    }
+}
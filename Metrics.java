@@ -0,0 +1,246 @@
+package com.saveetha.trafficguard;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and latency histograms for the app's hot paths, shown by
+ * {@link MetricsActivity} and written out by {@link MetricsActivity#writeSnapshot}. Recording
+ * is lock-free and allocation-free. While sampling is off, {@link #start()} returns 0 and
+ * recording returns after one volatile read.
+ *
+ * <p>Hot paths should keep the {@link Counter} or {@link Histogram} in a static final rather
+ * than looking it up by name each time.
+ */
+public final class Metrics {
+
+    private static volatile boolean enabled;
+
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A start time for {@link Histogram#recordSince}, or 0 while sampling is off.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static Counter counter(String name) {
+        Counter counter = COUNTERS.get(name);
+        if (counter == null) {
+            Counter created = new Counter(name);
+            counter = COUNTERS.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public static Histogram histogram(String name) {
+        Histogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(name);
+            histogram = HISTOGRAMS.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Writes every counter and histogram, sorted by name, one per line.
+     */
+    public static void dump(PrintWriter out) {
+        out.println("Metrics (sampling " + (enabled ? "on" : "off") + ")");
+        List<String> names = new ArrayList<>(COUNTERS.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            Counter counter = COUNTERS.get(name);
+            out.println("  " + name + " count=" + counter.count() + " lastMinute=" + counter.lastMinute());
+        }
+        names = new ArrayList<>(HISTOGRAMS.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            Histogram histogram = HISTOGRAMS.get(name);
+            long count = histogram.count();
+            if (count == 0) {
+                out.println("  " + name + " count=0");
+                continue;
+            }
+            out.println("  " + name + " count=" + count
+                    + " mean=" + histogram.sum() / count + "us"
+                    + " p50=" + histogram.percentile(50) + "us"
+                    + " p90=" + histogram.percentile(90) + "us"
+                    + " p99=" + histogram.percentile(99) + "us"
+                    + " max=" + histogram.max() + "us");
+        }
+        out.flush();
+    }
+
+    /**
+     * A count of events, also tracking how many arrived in the last full minute.
+     */
+    public static final class Counter {
+        final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong minute = new AtomicLong(); // The minute thisMinute counts
+        private final AtomicLong thisMinute = new AtomicLong();
+        private volatile long lastMinute; // Counted in the minute before minute
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (!enabled) {
+                return;
+            }
+            count.incrementAndGet();
+            long now = currentMinute();
+            long seen = minute.get();
+            if (now != seen && minute.compareAndSet(seen, now)) {
+                // Only the thread that moves the minute on rolls the window; a racing
+                // increment may land in either minute
+                long previous = thisMinute.getAndSet(0);
+                lastMinute = now == seen + 1 ? previous : 0;
+            }
+            thisMinute.incrementAndGet();
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        /**
+         * Events in the last complete minute. Worked out from when they were counted, so it is
+         * right even if nothing has been counted since.
+         */
+        public long lastMinute() {
+            long now = currentMinute();
+            long seen = minute.get();
+            if (now == seen) {
+                return lastMinute;
+            }
+            return now == seen + 1 ? thisMinute.get() : 0;
+        }
+
+        private static long currentMinute() {
+            return System.nanoTime() / 60_000_000_000L;
+        }
+    }
+
+    /**
+     * Latencies in microseconds, in log-linear buckets: exact below {@link #SUB_BUCKETS}, then
+     * {@link #SUB_BUCKETS} buckets per power of two, so any percentile is within 12.5%.
+     */
+    public static final class Histogram {
+        static final int SUB_BITS = 3;
+        static final int SUB_BUCKETS = 1 << SUB_BITS;
+        static final int MAX_EXPONENT = 40;
+        static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1; // About 25 days; longer is clamped
+        static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+        final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records the time since {@code startNanos} from {@link Metrics#start()}; does nothing
+         * if it was taken while sampling was off.
+         */
+        public void recordSince(long startNanos) {
+            if (startNanos != 0) {
+                record((System.nanoTime() - startNanos) / 1000);
+            }
+        }
+
+        public void record(long micros) {
+            if (!enabled) {
+                return;
+            }
+            long value = Math.max(0, Math.min(micros, MAX_VALUE));
+            buckets.incrementAndGet(bucket(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long seen;
+            while (value > (seen = max.get()) && !max.compareAndSet(seen, value)) {
+                // Lost a race with a larger or concurrent value; check again
+            }
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public long sum() {
+            return sum.get();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * The lower bound of the bucket holding the given percentile, 0 to 100.
+         */
+        public long percentile(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return lowerBound(i);
+                }
+            }
+            return max.get();
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+        }
+
+        static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+            int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        }
+    }
+}
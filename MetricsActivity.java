@@ -0,0 +1,94 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Debug screen listing everything in {@link Metrics}; tap to refresh. Its {@code dumpsys}
+ * output also has the recent {@link AppLog} messages. The same text can be
+ * pulled without opening the screen:
+ * <pre>
+ * adb shell dumpsys activity com.saveetha.trafficguard/.MetricsActivity
+ * adb shell run-as com.saveetha.trafficguard cat files/metrics.txt
+ * </pre>
+ * The first needs the activity to be running; the second reads the snapshot written every
+ * time the screen is shown.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "MetricsActivity";
+    static final String SNAPSHOT_FILE = "metrics.txt";
+
+    // Snapshot writes; file I/O stays off the main thread
+    private static final Executor WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TextView text;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        text = new TextView(this);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setTextIsSelectable(true);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        text.setPadding(padding, padding, padding, padding);
+        text.setOnClickListener(v -> render());
+        ScrollView scroll = new ScrollView(this);
+        scroll.addView(text);
+        setContentView(scroll);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        render();
+        writeSnapshot(this);
+    }
+
+    private void render() {
+        StringWriter out = new StringWriter();
+        Metrics.dump(new PrintWriter(out));
+        text.setText(out.toString());
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        Metrics.dump(writer);
+        AppLog.dump(writer);
+    }
+
+    /**
+     * Writes the current metrics to {@link #SNAPSHOT_FILE} in the app's files directory, on a
+     * background thread; returns straight away.
+     */
+    static void writeSnapshot(Context context) {
+        File file = new File(context.getApplicationContext().getFilesDir(), SNAPSHOT_FILE);
+        WRITER.execute(() -> {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+                Metrics.dump(writer);
+            } catch (IOException e) {
+                AppLog.w(TAG, "Failed to write metrics snapshot", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,273 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.WorkerThread;
+import androidx.core.app.NotificationCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces bursts of alert notifications. Alerts are batched by a caller-chosen key, such as
+ * the area they are in: a key's notification is posted once no new alert has arrived for
+ * {@link #DEBOUNCE_MS}, as a single InboxStyle notification when several arrived. Every key's
+ * notification joins one group with a summary.
+ *
+ * <p>Repeats of an incident that was already shown with the same text are dropped, also after
+ * a restart: the last {@link #SEEN_INCIDENTS} incidents shown are kept in preferences. Only
+ * {@link #ALERT_BURST} high-priority notifications may make sound and vibrate in a row, refilled
+ * one per {@link #ALERT_REFILL_MS}; the rest are posted silently.
+ */
+public final class NotificationBatcher {
+
+    static final long DEBOUNCE_MS = 1500;
+    static final long MAX_DELAY_MS = 5000; // A steady stream still posts this often
+    static final int ALERT_BURST = 3;
+    static final long ALERT_REFILL_MS = 20_000;
+
+    private static final int MAX_LINES = 5;        // InboxStyle shows no more than this
+    static final int SEEN_INCIDENTS = 256;
+    private static final int SUMMARY_ID = NotificationHelper.FIRST_BATCHED_ID;
+    private static final String IDS_PREFS = "notification_ids";
+    private static final String SEEN_PREFS = "notified_incidents";
+    private static final String NEXT_ID = "next";
+    private static final String SUMMARY_TITLE = "Traffic alerts";
+
+    private static NotificationBatcher instance;
+
+    public static synchronized NotificationBatcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotificationBatcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Everything below is only touched on the main thread
+    private final NotificationHelper helper;
+    private final SharedPreferences ids;
+    private final SharedPreferences seenPrefs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final TokenBucket alerts = new TokenBucket(ALERT_BURST, ALERT_REFILL_MS);
+    private final Map<String, Batch> pending = new HashMap<>();
+
+    // Incident id to the hash of the text last shown for it, least recently posted first
+    private final Map<String, Integer> seen = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            if (size() > SEEN_INCIDENTS) {
+                seenPrefs.edit().remove(eldest.getKey()).apply();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // Latest line of each key whose notification is showing, oldest first; for cancel() and
+    // the group summary. Bounded by the batched id range, since a reused id replaces its key.
+    private final LinkedHashMap<String, String> posted = new LinkedHashMap<>();
+
+    private NotificationBatcher(Context context) {
+        this.helper = NotificationHelper.getInstance(context);
+        this.ids = context.getSharedPreferences(IDS_PREFS, Context.MODE_PRIVATE);
+        this.seenPrefs = context.getSharedPreferences(SEEN_PREFS, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : seenPrefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                seen.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Queues an alert. May be called from any thread.
+     *
+     * @param key        alerts with the same key share a notification
+     * @param incidentId identifies the incident across feed refreshes
+     */
+    public void post(String key, String incidentId, String title, String content, boolean highPriority) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post(() -> post(key, incidentId, title, content, highPriority));
+            return;
+        }
+        int hash = title.hashCode() * 31 + content.hashCode();
+        Integer previous = seen.put(incidentId, hash);
+        if (previous != null && previous == hash) {
+            return;
+        }
+        seenPrefs.edit().putInt(incidentId, hash).apply();
+        long now = SystemClock.uptimeMillis();
+        Batch batch = pending.get(key);
+        if (batch == null) {
+            batch = new Batch(key, now);
+            pending.put(key, batch);
+        }
+        batch.add(incidentId, title, content, highPriority);
+        handler.removeCallbacks(batch);
+        handler.postAtTime(batch, Math.min(now + DEBOUNCE_MS, batch.firstAt + MAX_DELAY_MS));
+    }
+
+    /**
+     * Posts everything queued so far without waiting out the debounce, and returns once it is
+     * posted or {@code timeoutMs} has passed. For work whose process may end as soon as it
+     * returns, such as a {@link androidx.work.Worker}; call it after the last {@link #post}.
+     *
+     * @return false if the alerts were not posted in time
+     */
+    @WorkerThread
+    public boolean flushNow(long timeoutMs) throws InterruptedException {
+        CountDownLatch posted = new CountDownLatch(1);
+        // Runs after the posts this thread queued before it
+        handler.post(() -> {
+            for (Batch batch : new ArrayList<>(pending.values())) {
+                handler.removeCallbacks(batch);
+                flush(batch);
+            }
+            posted.countDown();
+        });
+        return posted.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops any pending alerts for {@code key} and removes its notification.
+     */
+    public void cancel(String key) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post(() -> cancel(key));
+            return;
+        }
+        Batch batch = pending.remove(key);
+        if (batch != null) {
+            handler.removeCallbacks(batch);
+        }
+        if (posted.remove(key) != null) {
+            helper.cancel(notificationId(key));
+            postSummary();
+        }
+    }
+
+    private void flush(Batch batch) {
+        pending.remove(batch.key);
+        boolean alert = batch.highPriority && alerts.tryAcquire(SystemClock.elapsedRealtime());
+        int count = batch.titles.size();
+        String last = batch.titles.get(count - 1);
+        NotificationCompat.Builder builder;
+        if (count == 1) {
+            builder = helper.template(alert)
+                    .setContentTitle(last)
+                    .setContentText(batch.contents.get(0));
+        } else {
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+            for (int i = Math.max(0, count - MAX_LINES); i < count; i++) {
+                style.addLine(batch.titles.get(i) + " · " + batch.contents.get(i));
+            }
+            if (count > MAX_LINES) {
+                style.setSummaryText("+" + (count - MAX_LINES) + " more");
+            }
+            builder = helper.template(alert)
+                    .setContentTitle(count + " traffic alerts")
+                    .setContentText(last)
+                    .setStyle(style)
+                    .setNumber(count);
+        }
+        // A key that is already showing is updated in place; it only alerts again with a token
+        builder.setGroup(NotificationHelper.GROUP_ALERTS).setSilent(!alert).setOnlyAlertOnce(!alert);
+        helper.notify(notificationId(batch.key), builder);
+
+        posted.remove(batch.key);
+        posted.put(batch.key, last);
+        postSummary();
+    }
+
+    private void postSummary() {
+        if (posted.size() < 2) {
+            helper.cancel(SUMMARY_ID);
+            return;
+        }
+        // Only the latest keys make it into the summary; the rest stay in the shade
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        int skip = posted.size() - MAX_LINES;
+        String last = null;
+        for (String line : posted.values()) {
+            if (skip-- <= 0) {
+                style.addLine(line);
+            }
+            last = line;
+        }
+        NotificationCompat.Builder builder = helper.template(false)
+                .setContentTitle(SUMMARY_TITLE)
+                .setContentText(last)
+                .setStyle(style)
+                .setGroup(NotificationHelper.GROUP_ALERTS)
+                .setGroupSummary(true)
+                .setSilent(true);
+        helper.notify(SUMMARY_ID, builder);
+    }
+
+    /**
+     * The id of {@code key}'s notification, the same across restarts. Ids are handed out in turn
+     * from NotificationHelper's batched range after the summary's; once it is used up, a new key
+     * takes over the id of the key that was given it longest ago.
+     */
+    private int notificationId(String key) {
+        int id = ids.getInt("key:" + key, 0);
+        if (id != 0) {
+            return id;
+        }
+        int next = ids.getInt(NEXT_ID, 0);
+        id = SUMMARY_ID + 1 + next % (NotificationHelper.BATCHED_IDS - 1);
+        SharedPreferences.Editor editor = ids.edit();
+        String previous = ids.getString("id:" + id, null);
+        if (previous != null) {
+            editor.remove("key:" + previous);
+            posted.remove(previous); // Its notification is replaced by this key's
+        }
+        editor.putInt("key:" + key, id)
+                .putString("id:" + id, key)
+                .putInt(NEXT_ID, next + 1)
+                .apply();
+        return id;
+    }
+
+    /** Alerts waiting to be posted for one key; runs the flush when its time comes. */
+    private final class Batch implements Runnable {
+        final String key;
+        final long firstAt;
+        final List<String> incidents = new ArrayList<>();
+        final List<String> titles = new ArrayList<>();
+        final List<String> contents = new ArrayList<>();
+        boolean highPriority;
+
+        Batch(String key, long firstAt) {
+            this.key = key;
+            this.firstAt = firstAt;
+        }
+
+        void add(String incidentId, String title, String content, boolean highPriority) {
+            int index = incidents.indexOf(incidentId);
+            if (index >= 0) {
+                // An update to an incident in this batch replaces its line
+                incidents.remove(index);
+                titles.remove(index);
+                contents.remove(index);
+            }
+            incidents.add(incidentId);
+            titles.add(title);
+            contents.add(content);
+            this.highPriority |= highPriority;
+        }
+
+        @Override
+        public void run() {
+            flush(this);
+        }
+    }
+}
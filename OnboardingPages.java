@@ -0,0 +1,111 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+
+/**
+ * The onboarding pages' layouts, numbered from 1. A page asked for with {@link #preload} is
+ * inflated off the main thread, images included, once the main thread is idle, and handed to
+ * the page's fragment by {@link #take} when it is swiped to. Pages are inflated against a
+ * {@link FrameLayout}, like the one ViewPager2 puts each fragment in, so they get the layout
+ * params they would have had inflated in place.
+ *
+ * <p>Main thread only; owned by {@link OnboardingActivity}.
+ */
+final class OnboardingPages {
+
+    static final int COUNT = 3;
+
+    /** Implemented by the activity hosting the onboarding pages. */
+    interface Host {
+        OnboardingPages getOnboardingPages();
+    }
+
+    private final AsyncLayoutInflater inflater;
+    private final ViewGroup parent; // Only lends its layout params; never holds the pages
+    private final SparseArray<View> preloaded = new SparseArray<>();
+    private final SparseBooleanArray requested = new SparseBooleanArray();
+    private final SparseBooleanArray taken = new SparseBooleanArray();
+
+    OnboardingPages(Context context) {
+        inflater = new AsyncLayoutInflater(context);
+        parent = new FrameLayout(context);
+    }
+
+    static int layoutFor(int page) {
+        switch (page) {
+            case 1:
+                return R.layout.onboarding_1;
+            case 2:
+                return R.layout.onboarding_2;
+            case 3:
+                return R.layout.onboarding_3;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Inflates {@code page} in the background the next time the main thread is idle. Does
+     * nothing for pages already preloaded or out of range.
+     */
+    void preload(int page) {
+        if (request(page)) {
+            Looper.myQueue().addIdleHandler(() -> {
+                inflate(page);
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Starts inflating {@code page} in the background straight away; for the first page, which
+     * is needed before the main thread is next idle.
+     */
+    void preloadNow(int page) {
+        if (request(page)) {
+            inflate(page);
+        }
+    }
+
+    private boolean request(int page) {
+        if (layoutFor(page) == 0 || requested.get(page)) {
+            return false;
+        }
+        requested.put(page, true);
+        return true;
+    }
+
+    private void inflate(int page) {
+        inflater.inflate(layoutFor(page), parent, (view, resid, p) -> {
+            if (!taken.get(page)) {
+                preloaded.put(page, view);
+            }
+        });
+    }
+
+    /**
+     * The preloaded view for {@code page} if it is ready, otherwise a fresh inflation.
+     */
+    View take(int page, LayoutInflater fallback, ViewGroup container) {
+        taken.put(page, true); // One that is still inflating is no longer wanted
+        View view = preloaded.get(page);
+        if (view != null) {
+            preloaded.remove(page);
+            return view;
+        }
+        return fallback.inflate(layoutFor(page), container, false);
+    }
+
+    void release() {
+        preloaded.clear();
+    }
+}
@@ -0,0 +1,182 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for the user's profile and preference values in the Realtime Database.
+ * Writes made within {@link #BATCH_WINDOW_MS} of each other go out together as one multi-path
+ * {@code updateChildren}, and a later value for a path replaces an unsent one. Values are kept
+ * in preferences until then, so writes survive the process being killed.
+ *
+ * <p>Once sent, a batch is in the database's own queue: with persistence on it is saved to disk,
+ * applied locally straight away and sent whenever there is a connection, so nothing is retried
+ * here. The database sends it with the credentials of whoever is signed in at the time, so a
+ * batch is sent whoever is signed in now; call {@link #flushNow()} before signing out. Writes
+ * the rules reject are dropped rather than retried, so one bad path can't hold up the rest.
+ */
+final class ProfileWriteQueue {
+
+    static final long BATCH_WINDOW_MS = 500;
+
+    private static final String TAG = "ProfileWriteQueue";
+    private static final String PREFS_NAME = "pending_writes";
+    private static final char UID_SEPARATOR = ':'; // Preference keys are <uid>:<path>
+
+    // Owns all queue state; batches are sent from here
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "profile-writes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static ProfileWriteQueue instance;
+
+    static synchronized ProfileWriteQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProfileWriteQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final SharedPreferences prefs;
+    private final DatabaseReference root;
+    private final Map<String, Map<String, Object>> pending = new HashMap<>(); // By uid, then path
+    private ScheduledFuture<?> scheduledFlush;
+
+    private ProfileWriteQueue(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        root = FirebaseDatabase.getInstance().getReference();
+        WRITER.execute(() -> {
+            // Left over from the last run
+            SharedPreferences.Editor editor = prefs.edit();
+            int count = 0;
+            for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+                int separator = entry.getKey().indexOf(UID_SEPARATOR);
+                if (separator <= 0) {
+                    editor.remove(entry.getKey()); // Queued before writes were kept per user
+                    continue;
+                }
+                String uid = entry.getKey().substring(0, separator);
+                writesFor(uid).put(entry.getKey().substring(separator + 1), entry.getValue());
+                count++;
+            }
+            editor.apply();
+            if (count > 0) {
+                AppLog.d(TAG, "{} writes pending from last run", count);
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Queues {@code values} to be written under {@code path}, e.g. {@code "users/<uid>"}, for
+     * the user {@code uid}. Values must be strings, booleans, ints, longs or floats. Returns
+     * straight away.
+     */
+    void enqueue(String uid, String path, Map<String, ?> values) {
+        Map<String, Object> writes = new HashMap<>();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            writes.put(path + "/" + entry.getKey(), checkValue(entry.getValue()));
+        }
+        WRITER.execute(() -> {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (Map.Entry<String, Object> write : writes.entrySet()) {
+                put(editor, uid + UID_SEPARATOR + write.getKey(), write.getValue());
+            }
+            editor.apply();
+            writesFor(uid).putAll(writes);
+            if (scheduledFlush == null) {
+                scheduledFlush = WRITER.schedule(this::flush, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    /**
+     * Sends everything queued so far without waiting out the batch window; for callers about to
+     * sign the user out, so the writes go out while the user is still signed in.
+     */
+    void flushNow() {
+        WRITER.execute(this::flush);
+    }
+
+    private Map<String, Object> writesFor(String uid) {
+        Map<String, Object> writes = pending.get(uid);
+        if (writes == null) {
+            writes = new HashMap<>();
+            pending.put(uid, writes);
+        }
+        return writes;
+    }
+
+    private void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, Map<String, Object>> writes : pending.entrySet()) {
+            String uid = writes.getKey();
+            for (String path : writes.getValue().keySet()) {
+                editor.remove(uid + UID_SEPARATOR + path);
+            }
+            send(uid, writes.getValue());
+        }
+        // The database's own queue has them now
+        editor.apply();
+        pending.clear();
+    }
+
+    private void send(String uid, Map<String, Object> batch) {
+        root.updateChildren(batch, (error, ref) -> WRITER.execute(() -> {
+            if (error == null) {
+                AppLog.d(TAG, "Wrote {} values", batch.size());
+            } else if (error.getCode() == DatabaseError.PERMISSION_DENIED && batch.size() > 1) {
+                // The whole batch is rejected for any one path; send them singly to find it
+                for (Map.Entry<String, Object> write : batch.entrySet()) {
+                    send(uid, Collections.singletonMap(write.getKey(), write.getValue()));
+                }
+            } else if (error.getCode() == DatabaseError.PERMISSION_DENIED) {
+                AppLog.w(TAG, "Dropping write to {}, which the database rules reject",
+                        AppLog.pii(batch.keySet().iterator().next())); // Paths hold the uid
+            } else {
+                AppLog.w(TAG, "Failed to write {} values for {}: {}", batch.size(), AppLog.pii(uid),
+                        error.getMessage());
+            }
+        }));
+    }
+
+    private static Object checkValue(Object value) {
+        if (value instanceof String || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Float) {
+            return value;
+        }
+        throw new IllegalArgumentException("Unsupported value: " + value);
+    }
+
+    private static void put(SharedPreferences.Editor editor, String key, Object value) {
+        if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else {
+            editor.putFloat(key, (Float) value);
+        }
+    }
+}
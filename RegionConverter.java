@@ -0,0 +1,107 @@
+package com.saveetha.trafficguard;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Desktop tool that converts CSV exports of a road network into a {@link RegionFile}.
+ *
+ * <pre>
+ * java com.saveetha.trafficguard.RegionConverter nodes.csv edges.csv pois.csv out.region [tileDegrees]
+ *
+ *   nodes.csv  id,lat,lon
+ *   edges.csv  from,to,lengthMeters,speedKph,oneway     (lengthMeters 0 = straight line)
+ *   pois.csv   lat,lon,kind,open,name                   (kind is station or incident)
+ * </pre>
+ *
+ * Lines starting with '#' are skipped. Pass "-" for pois.csv when there are none.
+ */
+public final class RegionConverter {
+
+    private RegionConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: RegionConverter nodes.csv edges.csv pois.csv out.region [tileDegrees]");
+            System.exit(2);
+        }
+        double tileDegrees = args.length > 4 ? Double.parseDouble(args[4]) : RegionWriter.DEFAULT_TILE_DEGREES;
+
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        Map<String, Integer> nodeIds = new HashMap<>();
+        for (String[] row : read(args[0], 3)) {
+            nodeIds.put(row[0], builder.addNode(Double.parseDouble(row[1]), Double.parseDouble(row[2])));
+        }
+        int roads = 0;
+        for (String[] row : read(args[1], 5)) {
+            Integer from = nodeIds.get(row[0]);
+            Integer to = nodeIds.get(row[1]);
+            if (from == null || to == null) {
+                throw new IOException("Edge references unknown node: " + row[0] + " -> " + row[1]);
+            }
+            int length = (int) Math.round(Double.parseDouble(row[2]));
+            double speed = Double.parseDouble(row[3]);
+            if (Boolean.parseBoolean(row[4]) || "1".equals(row[4])) {
+                builder.addEdge(from, to, length, speed);
+            } else {
+                builder.addRoad(from, to, length, speed);
+            }
+            roads++;
+        }
+        RoadGraph graph = builder.build();
+
+        RegionWriter writer = new RegionWriter(tileDegrees);
+        int pois = 0;
+        if (!"-".equals(args[2])) {
+            for (String[] row : read(args[2], 5)) {
+                int flags = "incident".equals(row[2]) ? GeoIndex.FLAG_INCIDENT : GeoIndex.FLAG_STATION;
+                if (Boolean.parseBoolean(row[3]) || "1".equals(row[3])) {
+                    flags |= GeoIndex.FLAG_OPEN;
+                }
+                writer.addPoi(Double.parseDouble(row[0]), Double.parseDouble(row[1]), flags, row[4]);
+                pois++;
+            }
+        }
+        File out = new File(args[3]);
+        writer.write(graph, out);
+        System.out.println("Wrote " + graph.nodeCount() + " nodes, " + roads + " roads, " + pois
+                + " POIs to " + out + " (" + out.length() + " bytes)");
+    }
+
+    /** Rows of a CSV file with at least {@code minFields} fields; the last field keeps any commas. */
+    private static List<String[]> read(String path, int minFields) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), Charset.forName("UTF-8")));
+        try {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", minFields);
+                if (fields.length < minFields) {
+                    throw new IOException(path + ":" + number + ": expected " + minFields + " fields");
+                }
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = fields[i].trim();
+                }
+                rows.add(fields);
+            }
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,217 @@
+package com.saveetha.trafficguard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a road graph and its POIs as a {@link RegionFile}. Nodes and POIs are reordered by tile
+ * on the way out, so node ids in the file differ from those of the graph passed in.
+ */
+public final class RegionWriter {
+
+    public static final double DEFAULT_TILE_DEGREES = 0.05; // About 5.5 km
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final double tileDegrees;
+    private int[] poiLatE6 = new int[64];
+    private int[] poiLonE6 = new int[64];
+    private int[] poiFlags = new int[64];
+    private final List<byte[]> poiNames = new ArrayList<>();
+    private int pois;
+
+    public RegionWriter(double tileDegrees) {
+        this.tileDegrees = tileDegrees;
+    }
+
+    /**
+     * Adds a point of interest; {@code flags} are {@link GeoIndex} flags.
+     */
+    public void addPoi(double lat, double lon, int flags, String name) {
+        if (pois == poiLatE6.length) {
+            poiLatE6 = Arrays.copyOf(poiLatE6, pois * 2);
+            poiLonE6 = Arrays.copyOf(poiLonE6, pois * 2);
+            poiFlags = Arrays.copyOf(poiFlags, pois * 2);
+        }
+        poiLatE6[pois] = (int) Math.round(lat * 1e6);
+        poiLonE6[pois] = (int) Math.round(lon * 1e6);
+        poiFlags[pois] = flags;
+        poiNames.add(name.getBytes(UTF_8));
+        pois++;
+    }
+
+    public void write(RoadGraph graph, File file) throws IOException {
+        int nodes = graph.nodeCount();
+        TileGrid tiles = grid(graph);
+
+        // Order nodes and POIs by tile, keeping their relative order within a tile
+        int[] nodeTile = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            nodeTile[n] = tiles.tile(graph.latitude(n), graph.longitude(n));
+        }
+        int[] nodeTileStart = new int[tiles.tileCount() + 1];
+        int[] nodeOrder = sortByTile(nodeTile, nodeTileStart);
+        int[] newId = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            newId[nodeOrder[i]] = i;
+        }
+        int[] poiTile = new int[pois];
+        for (int p = 0; p < pois; p++) {
+            poiTile[p] = tiles.tile(poiLatE6[p] / 1e6, poiLonE6[p] / 1e6);
+        }
+        int[] poiTileStart = new int[tiles.tileCount() + 1];
+        int[] poiOrder = sortByTile(poiTile, poiTileStart);
+
+        int edges = graph.edgeCount();
+        int[] firstEdge = new int[nodes + 1];
+        int[] edgeTarget = new int[edges];
+        int[] edgeTimeMs = new int[edges];
+        int[] edgeLengthM = new int[edges];
+        int e = 0;
+        for (int i = 0; i < nodes; i++) {
+            int old = nodeOrder[i];
+            firstEdge[i] = e;
+            for (int oldEdge = graph.firstEdge(old); oldEdge < graph.firstEdge(old + 1); oldEdge++) {
+                edgeTarget[e] = newId[graph.edgeTarget(oldEdge)];
+                edgeTimeMs[e] = graph.edgeTimeMs(oldEdge);
+                edgeLengthM[e] = graph.edgeLengthM(oldEdge);
+                e++;
+            }
+        }
+        firstEdge[nodes] = e;
+
+        int[] poiNameStart = new int[pois + 1];
+        for (int i = 0; i < pois; i++) {
+            poiNameStart[i + 1] = poiNameStart[i] + poiNames.get(poiOrder[i]).length;
+        }
+
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            Output out = new Output(stream.getChannel());
+            out.putInt(RegionFile.MAGIC);
+            out.putInt(RegionFile.VERSION);
+            out.putInt(nodes);
+            out.putInt(edges);
+            out.putInt(pois);
+            out.putInt(poiNameStart[pois]);
+            out.putDouble(tiles.minLat);
+            out.putDouble(tiles.minLon);
+            out.putDouble(tiles.tileDegrees);
+            out.putInt(tiles.cols);
+            out.putInt(tiles.rows);
+            out.putDouble(graph.maxMetersPerMs);
+
+            out.putInts(nodeTileStart);
+            out.putInts(firstEdge);
+            out.putInts(edgeTarget);
+            out.putInts(edgeTimeMs);
+            out.putInts(edgeLengthM);
+            for (int i = 0; i < nodes; i++) out.putInt(graph.latE6(nodeOrder[i]));
+            for (int i = 0; i < nodes; i++) out.putInt(graph.lonE6(nodeOrder[i]));
+            out.putInts(poiTileStart);
+            for (int i = 0; i < pois; i++) out.putInt(poiLatE6[poiOrder[i]]);
+            for (int i = 0; i < pois; i++) out.putInt(poiLonE6[poiOrder[i]]);
+            for (int i = 0; i < pois; i++) out.putInt(poiFlags[poiOrder[i]]);
+            out.putInts(poiNameStart);
+            for (int i = 0; i < pois; i++) out.putBytes(poiNames.get(poiOrder[i]));
+            out.flush();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private TileGrid grid(RoadGraph graph) {
+        double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int n = 0; n < graph.nodeCount(); n++) {
+            minLat = Math.min(minLat, graph.latitude(n));
+            maxLat = Math.max(maxLat, graph.latitude(n));
+            minLon = Math.min(minLon, graph.longitude(n));
+            maxLon = Math.max(maxLon, graph.longitude(n));
+        }
+        for (int p = 0; p < pois; p++) {
+            minLat = Math.min(minLat, poiLatE6[p] / 1e6);
+            maxLat = Math.max(maxLat, poiLatE6[p] / 1e6);
+            minLon = Math.min(minLon, poiLonE6[p] / 1e6);
+            maxLon = Math.max(maxLon, poiLonE6[p] / 1e6);
+        }
+        if (minLat > maxLat) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+        return TileGrid.covering(minLat, minLon, maxLat, maxLon, tileDegrees);
+    }
+
+    /**
+     * Stable counting sort: returns the items in tile order and fills {@code tileStart} with where
+     * each tile's items begin.
+     */
+    private static int[] sortByTile(int[] tileOf, int[] tileStart) {
+        for (int tile : tileOf) {
+            tileStart[tile + 1]++;
+        }
+        for (int t = 0; t + 1 < tileStart.length; t++) {
+            tileStart[t + 1] += tileStart[t];
+        }
+        int[] next = Arrays.copyOf(tileStart, tileStart.length - 1);
+        int[] order = new int[tileOf.length];
+        for (int i = 0; i < tileOf.length; i++) {
+            order[next[tileOf[i]]++] = i;
+        }
+        return order;
+    }
+
+    /** Little-endian writer over a channel. */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int value : values) {
+                putInt(value);
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                ensure(1);
+                buffer.put(b);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
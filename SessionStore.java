@@ -0,0 +1,222 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The signed-in user's profile and ID token. The profile is kept in preferences so screens can
+ * show who is signed in straight away, without asking Firebase or the network; the token is a
+ * credential and is only held in memory. It is refreshed in the background
+ * {@link #REFRESH_MARGIN_MS} before it expires, and the session follows Firebase's auth state:
+ * it is replaced on sign-in and cleared on sign-out.
+ */
+public final class SessionStore {
+
+    static final long REFRESH_MARGIN_MS = 5 * 60 * 1000L;
+    private static final long RETRY_MS = 60 * 1000L;
+    static final String PREFS_NAME = "session";
+
+    private static final String TAG = "SessionStore";
+    private static final String KEY_UID = "uid";
+    private static final String KEY_EMAIL = "email";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_VERIFIED = "email_verified";
+    // Written by earlier versions; removed on the next store
+    private static final String KEY_TOKEN = "id_token";
+    private static final String KEY_TOKEN_EXPIRES_AT = "id_token_expires_at";
+
+    // Token refreshes; one at a time
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A signed-in user as last seen. Immutable.
+     */
+    public static final class Session {
+        public final String uid;
+        @Nullable public final String email;
+        @Nullable public final String name;
+        public final boolean emailVerified;
+        @Nullable public final String idToken;
+        public final long tokenExpiresAt; // Wall-clock millis, 0 if there is no token yet
+
+        Session(String uid, @Nullable String email, @Nullable String name, boolean emailVerified,
+                @Nullable String idToken, long tokenExpiresAt) {
+            this.uid = uid;
+            this.email = email;
+            this.name = name;
+            this.emailVerified = emailVerified;
+            this.idToken = idToken;
+            this.tokenExpiresAt = tokenExpiresAt;
+        }
+
+        /** Whether the token is still good for at least {@code marginMs}. */
+        public boolean hasTokenFor(long now, long marginMs) {
+            return idToken != null && tokenExpiresAt - marginMs > now;
+        }
+
+        Session withProfile(@Nullable String email, @Nullable String name, boolean emailVerified) {
+            return new Session(uid, email, name, emailVerified, idToken, tokenExpiresAt);
+        }
+
+        Session withToken(String idToken, long tokenExpiresAt) {
+            return new Session(uid, email, name, emailVerified, idToken, tokenExpiresAt);
+        }
+    }
+
+    private static SessionStore instance;
+
+    public static synchronized SessionStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * The session as last stored, read straight from preferences without creating the store or
+     * touching Firebase; for the launch path, where the store may still be starting up. It has
+     * no token.
+     */
+    @Nullable
+    static Session cached(Context context) {
+        return read(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+
+    private final SharedPreferences prefs;
+    private final FirebaseAuth auth;
+    private volatile Session session;
+    private ScheduledFuture<?> refresh;
+    private String pendingNameUid; // Name recorded before the session for that user existed
+    private String pendingName;
+
+    private SessionStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        auth = FirebaseAuth.getInstance();
+        session = read(prefs);
+        auth.addAuthStateListener(firebaseAuth -> onAuthStateChanged(firebaseAuth.getCurrentUser()));
+    }
+
+    /**
+     * The cached session, or null when nobody is signed in. Never blocks on the network.
+     */
+    @Nullable
+    public Session current() {
+        return session;
+    }
+
+    /**
+     * Records the display name from the user's profile record, e.g. the one written at sign-up.
+     */
+    public synchronized void setName(String uid, String name) {
+        Session current = session;
+        if (current != null && current.uid.equals(uid)) {
+            store(current.withProfile(current.email, name, current.emailVerified));
+        } else {
+            pendingNameUid = uid;
+            pendingName = name;
+        }
+    }
+
+    private synchronized void onAuthStateChanged(@Nullable FirebaseUser user) {
+        if (user == null) {
+            if (refresh != null) {
+                refresh.cancel(false);
+            }
+            session = null;
+            prefs.edit().clear().apply();
+            return;
+        }
+        Session current = session;
+        String name = user.getDisplayName();
+        if (name == null && user.getUid().equals(pendingNameUid)) {
+            name = pendingName;
+        } else if (name == null && current != null && current.uid.equals(user.getUid())) {
+            name = current.name;
+        }
+        if (current == null || !current.uid.equals(user.getUid())) {
+            current = new Session(user.getUid(), user.getEmail(), name, user.isEmailVerified(), null, 0);
+        } else {
+            current = current.withProfile(user.getEmail(), name, user.isEmailVerified());
+        }
+        store(current);
+        scheduleRefresh(current);
+    }
+
+    private synchronized void scheduleRefresh(Session current) {
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+        long delay = current.hasTokenFor(System.currentTimeMillis(), REFRESH_MARGIN_MS)
+                ? current.tokenExpiresAt - REFRESH_MARGIN_MS - System.currentTimeMillis()
+                : 0;
+        refresh = REFRESHER.schedule(this::refreshToken, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshToken() {
+        FirebaseUser user = auth.getCurrentUser();
+        Session current = session;
+        if (user == null || current == null || !current.uid.equals(user.getUid())) {
+            return;
+        }
+        user.getIdToken(true).addOnCompleteListener(REFRESHER, task -> {
+            if (!task.isSuccessful()) {
+                AppLog.w(TAG, "Failed to refresh ID token", task.getException());
+            }
+            synchronized (this) {
+                // Checked under the lock so a sign-out can't be undone by a late token
+                Session latest = session;
+                if (latest == null || !latest.uid.equals(current.uid)) {
+                    return; // Signed out or switched user meanwhile
+                }
+                if (task.isSuccessful() && task.getResult().getToken() != null) {
+                    Session refreshed = latest.withToken(task.getResult().getToken(),
+                            task.getResult().getExpirationTimestamp() * 1000);
+                    session = refreshed; // The profile is unchanged; nothing to write
+                    scheduleRefresh(refreshed);
+                } else {
+                    refresh = REFRESHER.schedule(this::refreshToken, RETRY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+    }
+
+    // Only called with the lock held. Writes the profile; the token stays in memory
+    private void store(Session next) {
+        session = next;
+        prefs.edit()
+                .putString(KEY_UID, next.uid)
+                .putString(KEY_EMAIL, next.email)
+                .putString(KEY_NAME, next.name)
+                .putBoolean(KEY_VERIFIED, next.emailVerified)
+                .remove(KEY_TOKEN)
+                .remove(KEY_TOKEN_EXPIRES_AT)
+                .apply();
+    }
+
+    @Nullable
+    private static Session read(SharedPreferences prefs) {
+        String uid = prefs.getString(KEY_UID, null);
+        if (uid == null) {
+            return null;
+        }
+        return new Session(uid,
+                prefs.getString(KEY_EMAIL, null),
+                prefs.getString(KEY_NAME, null),
+                prefs.getBoolean(KEY_VERIFIED, false),
+                null, 0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.saveetha.trafficguard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link FeedSource} over one emission of raw feed lines. Lines are only parsed when the page
+ * holding them is loaded, so parsed rows never outnumber the paging window. Row ids are worked
+ * out for the whole emission up front, so rows sharing an identity get the same distinct ids
+ * as from {@link FeedParser#parse}.
+ */
+final class SnapshotFeedSource implements FeedSource {
+
+    private final List<String> lines;
+    private final int type;
+    private final int[] rows; // Index into lines of each line that parses to a row
+    private final long[] ids; // Id of each row
+
+    SnapshotFeedSource(List<String> lines, int type) {
+        this.lines = lines;
+        this.type = type;
+        int[] rows = new int[lines.size()];
+        int count = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (FeedParser.isRow(lines.get(i), type)) {
+                rows[count++] = i;
+            }
+        }
+        this.rows = count == rows.length ? rows : Arrays.copyOf(rows, count);
+        this.ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = FeedParser.rowId(lines.get(this.rows[i]), type);
+        }
+        FeedParser.dedupe(ids, count);
+    }
+
+    @Override
+    public int count() {
+        return rows.length;
+    }
+
+    @Override
+    public List<FeedItem> load(int offset, int limit) {
+        List<FeedItem> items = new ArrayList<>(limit);
+        for (int i = offset; i < offset + limit; i++) {
+            FeedItem item = FeedParser.parseLine(lines.get(rows[i]), type);
+            items.add(item.getId() == ids[i] ? item : FeedParser.withId(item, ids[i]));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,105 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * The app's startup work as named components with dependencies. Components needed before the
+ * first activity runs on the main thread, in the order added; the rest are handed to a
+ * single background thread, also in order, so a component always runs after the ones it
+ * depends on. Each component's time is recorded for {@link #timings()}.
+ */
+final class StartupGraph {
+
+    interface Component {
+        void create(Context context);
+    }
+
+    private static final String TAG = "Startup";
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Node> byName = new LinkedHashMap<>();
+    private final Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Adds a component. Its dependencies must already have been added, and a main-thread
+     * component may only depend on other main-thread components.
+     */
+    StartupGraph add(String name, boolean mainThread, Component component, String... dependsOn) {
+        if (byName.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup component " + name);
+        }
+        for (String dependency : dependsOn) {
+            Node node = byName.get(dependency);
+            if (node == null) {
+                throw new IllegalArgumentException(name + " depends on " + dependency + ", which is not added yet");
+            }
+            if (mainThread && !node.mainThread) {
+                throw new IllegalArgumentException(name + " runs on the main thread but depends on background " + dependency);
+            }
+        }
+        Node node = new Node(name, mainThread, component);
+        nodes.add(node);
+        byName.put(name, node);
+        return this;
+    }
+
+    /**
+     * Runs the main-thread components now and queues the others on {@code background}.
+     */
+    void start(Context context, Executor background) {
+        for (Node node : nodes) {
+            if (node.mainThread) {
+                run(node, context);
+            }
+        }
+        for (Node node : nodes) {
+            if (!node.mainThread) {
+                background.execute(() -> run(node, context));
+            }
+        }
+    }
+
+    /** Microseconds each component took, in the order they finished. */
+    Map<String, Long> timings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+    private void run(Node node, Context context) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        try {
+            node.component.create(context);
+        } catch (RuntimeException e) {
+            if (node.mainThread) {
+                throw e;
+            }
+            // Background setup is best effort; whatever needs it sets itself up on first use
+            AppLog.e(TAG, "Startup component {} failed", node.name, e);
+        }
+        long micros = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+        timings.put(node.name, micros);
+        Metrics.histogram("startup." + node.name).record(micros);
+        AppLog.i(TAG, "{} ({}) {} ms", node.name, node.mainThread ? "main" : "background", micros / 1000.0);
+    }
+
+    private static final class Node {
+        final String name;
+        final boolean mainThread;
+        final Component component;
+
+        Node(String name, boolean mainThread, Component component) {
+            this.name = name;
+            this.mainThread = mainThread;
+            this.component = component;
+        }
+    }
+}
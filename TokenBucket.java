@@ -0,0 +1,41 @@
+package com.saveetha.trafficguard;
+
+/**
+ * Token bucket rate limiter: allows bursts of up to {@code capacity} and then one more every
+ * refill interval. Times are passed in, so it works with any monotonic clock.
+ *
+ * <p>Not thread-safe.
+ */
+final class TokenBucket {
+
+    private final int capacity;
+    private final long refillIntervalMs;
+    private int tokens;
+    private long lastRefillMs = Long.MIN_VALUE;
+
+    TokenBucket(int capacity, long refillIntervalMs) {
+        this.capacity = capacity;
+        this.refillIntervalMs = refillIntervalMs;
+        this.tokens = capacity;
+    }
+
+    /**
+     * Takes a token if one is available at {@code nowMs}.
+     */
+    boolean tryAcquire(long nowMs) {
+        if (lastRefillMs == Long.MIN_VALUE) {
+            lastRefillMs = nowMs;
+        }
+        long refills = (nowMs - lastRefillMs) / refillIntervalMs;
+        if (refills > 0) {
+            tokens = (int) Math.min(capacity, tokens + refills);
+            // Keep the partial interval unless the bucket is full
+            lastRefillMs = tokens == capacity ? nowMs : lastRefillMs + refills * refillIntervalMs;
+        }
+        if (tokens == 0) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
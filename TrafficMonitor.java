@@ -0,0 +1,380 @@
+package com.saveetha.trafficguard;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Build;
+
+import androidx.core.content.ContextCompat;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofencingEvent;
+import com.google.android.gms.location.GeofencingRequest;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the user's saved corridors in the background without keeping GPS or the radio busy.
+ *
+ * <ul>
+ *   <li>Each {@link CorridorStore} corridor is a geofence. Location is only followed while the
+ *       user is inside one, through batched fused updates whose interval follows how fast the
+ *       user is moving ({@link Motion}).</li>
+ *   <li>Incidents are fetched and matched by {@link TrafficMonitorWorker}: right away when the
+ *       user enters a corridor or has moved on since the last check, and otherwise from
+ *       periodic work that skips the network unless the last check is {@link #STALE_MS} old.</li>
+ * </ul>
+ *
+ * Geofences outlive the process, so they are only registered again when the corridors or
+ * the location permission have changed since they were registered, and after a reboot or an
+ * app update, which drop them.
+ *
+ * Without location permission only the periodic check runs. The receiver, with the boot
+ * completed and package replaced actions, and the location and boot permissions must be
+ * declared in the manifest.
+ */
+public final class TrafficMonitor {
+
+    static final long PERIOD_MINUTES = 30;
+    static final long STALE_MS = 3 * 60 * 60 * 1000L;
+    static final double RECHECK_DISTANCE_METERS = 500;
+    static final int MAX_GEOFENCES = 100; // Play services' limit per app
+    static final float MIN_GEOFENCE_RADIUS_METERS = 150;
+
+    private static final String TAG = "TrafficMonitor";
+    private static final String PERIODIC_WORK = "traffic-monitor";
+    private static final String CHECK_WORK = "traffic-monitor-check";
+    private static final String ACTION_GEOFENCE = "com.saveetha.trafficguard.action.CORRIDOR_GEOFENCE";
+    private static final String ACTION_LOCATION = "com.saveetha.trafficguard.action.CORRIDOR_LOCATION";
+
+    private static final String PREFS_NAME = "traffic_monitor";
+    private static final String KEY_INSIDE = "inside"; // Names of the corridors the user is in
+    private static final String KEY_MOTION = "motion";
+    private static final String KEY_LAST_CHECK_AT = "last_check_at";
+    private static final String KEY_CHECKED_LAT = "checked_lat";
+    private static final String KEY_CHECKED_LON = "checked_lon";
+    private static final String KEY_REGISTERED = "registered"; // registration() of the geofences in place
+
+    /**
+     * How often location is wanted at a given speed. Updates are delivered in batches, so the
+     * device wakes once per {@code maxDelayMs} rather than once per fix.
+     */
+    enum Motion {
+        STILL(0, 10 * 60 * 1000L, 30 * 60 * 1000L),
+        SLOW(1.0f, 2 * 60 * 1000L, 10 * 60 * 1000L),
+        DRIVING(6.0f, 30 * 1000L, 2 * 60 * 1000L);
+
+        final float minSpeed; // Metres per second
+        final long intervalMs;
+        final long maxDelayMs;
+
+        Motion(float minSpeed, long intervalMs, long maxDelayMs) {
+            this.minSpeed = minSpeed;
+            this.intervalMs = intervalMs;
+            this.maxDelayMs = maxDelayMs;
+        }
+
+        static Motion of(float speed) {
+            return speed >= DRIVING.minSpeed ? DRIVING : speed >= SLOW.minSpeed ? SLOW : STILL;
+        }
+    }
+
+    private TrafficMonitor() {
+    }
+
+    /**
+     * Schedules the periodic check and registers a geofence per corridor, unless the ones
+     * registered are still current. Runs on every process start; call again after corridors
+     * change or location permission is granted.
+     */
+    public static void start(Context context) {
+        Context app = context.getApplicationContext();
+        PeriodicWorkRequest periodic = new PeriodicWorkRequest.Builder(
+                TrafficMonitorWorker.class, PERIOD_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints())
+                .build();
+        WorkManager.getInstance(app).enqueueUniquePeriodicWork(PERIODIC_WORK, ExistingPeriodicWorkPolicy.KEEP, periodic);
+        List<CorridorStore.Corridor> corridors = CorridorStore.getInstance(app).all();
+        boolean permitted = hasLocationPermission(app);
+        if (prefs(app).getLong(KEY_REGISTERED, 0) == registration(corridors, permitted)) {
+            return; // The geofences in place are still right; leave the user's state alone
+        }
+        // Corridors the user is no longer in, e.g. deleted ones, are re-reported on entry
+        SharedPreferences prefs = prefs(app);
+        Set<String> inside = new HashSet<>(prefs.getStringSet(KEY_INSIDE, new HashSet<>()));
+        inside.retainAll(names(corridors));
+        prefs.edit().putStringSet(KEY_INSIDE, inside).apply();
+        if (inside.isEmpty()) {
+            stopLocationUpdates(app);
+        }
+        registerGeofences(app, corridors, permitted);
+    }
+
+    /**
+     * Registers the geofences from scratch; for when the system has dropped them, so the user
+     * is not known to be in any corridor.
+     */
+    static void refreshGeofences(Context context) {
+        prefs(context).edit().remove(KEY_INSIDE).apply();
+        stopLocationUpdates(context);
+        registerGeofences(context, CorridorStore.getInstance(context).all(), hasLocationPermission(context));
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void registerGeofences(Context context, List<CorridorStore.Corridor> corridors, boolean permitted) {
+        long registration = registration(corridors, permitted);
+        prefs(context).edit().putLong(KEY_REGISTERED, registration).apply();
+        if (!permitted) {
+            AppLog.i(TAG, "No background location permission; corridors are checked periodically only");
+            return;
+        }
+        PendingIntent intent = pendingIntent(context, ACTION_GEOFENCE);
+        LocationServices.getGeofencingClient(context).removeGeofences(intent);
+        List<Geofence> geofences = new ArrayList<>();
+        for (CorridorStore.Corridor corridor : corridors) {
+            if (geofences.size() == MAX_GEOFENCES) {
+                AppLog.w(TAG, "More than {} corridors; the rest are checked periodically only", MAX_GEOFENCES);
+                break;
+            }
+            geofences.add(new Geofence.Builder()
+                    .setRequestId(corridor.name)
+                    .setCircularRegion(corridor.centerLat, corridor.centerLon,
+                            Math.max(MIN_GEOFENCE_RADIUS_METERS, (float) corridor.radiusMeters))
+                    .setExpirationDuration(Geofence.NEVER_EXPIRE)
+                    .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT)
+                    // Lets play services batch transitions with other work instead of waking for them
+                    .setNotificationResponsiveness(5 * 60 * 1000)
+                    .build());
+        }
+        if (geofences.isEmpty()) {
+            return;
+        }
+        GeofencingRequest request = new GeofencingRequest.Builder()
+                .setInitialTrigger(GeofencingRequest.INITIAL_TRIGGER_ENTER)
+                .addGeofences(geofences)
+                .build();
+        LocationServices.getGeofencingClient(context).addGeofences(request, intent)
+                .addOnFailureListener(e -> {
+                    AppLog.w(TAG, "Failed to add corridor geofences", e);
+                    // Tried again on the next start
+                    prefs(context).edit().remove(KEY_REGISTERED).apply();
+                });
+    }
+
+    // Identifies what the geofences were built from; never 0, which means none registered
+    private static long registration(List<CorridorStore.Corridor> corridors, boolean permitted) {
+        long hash = permitted ? 1 : 2;
+        for (CorridorStore.Corridor corridor : corridors) {
+            hash = 31 * hash + corridor.name.hashCode();
+            hash = 31 * hash + Double.doubleToLongBits(corridor.centerLat);
+            hash = 31 * hash + Double.doubleToLongBits(corridor.centerLon);
+            hash = 31 * hash + Double.doubleToLongBits(corridor.radiusMeters);
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    private static Set<String> names(List<CorridorStore.Corridor> corridors) {
+        Set<String> names = new HashSet<>();
+        for (CorridorStore.Corridor corridor : corridors) {
+            names.add(corridor.name);
+        }
+        return names;
+    }
+
+    /**
+     * Whether the worker should use the network now: the user is in a corridor, or nothing has
+     * been checked for {@link #STALE_MS}.
+     */
+    static boolean shouldFetch(Context context, long now) {
+        SharedPreferences prefs = prefs(context);
+        return !prefs.getStringSet(KEY_INSIDE, new HashSet<>()).isEmpty()
+                || now - prefs.getLong(KEY_LAST_CHECK_AT, 0) >= STALE_MS;
+    }
+
+    /**
+     * The corridors to check: the ones the user is in, or all of them if none.
+     */
+    static List<CorridorStore.Corridor> corridorsToCheck(Context context) {
+        Set<String> inside = prefs(context).getStringSet(KEY_INSIDE, new HashSet<>());
+        List<CorridorStore.Corridor> all = CorridorStore.getInstance(context).all();
+        if (inside.isEmpty()) {
+            return all;
+        }
+        List<CorridorStore.Corridor> checked = new ArrayList<>();
+        for (CorridorStore.Corridor corridor : all) {
+            if (inside.contains(corridor.name)) {
+                checked.add(corridor);
+            }
+        }
+        return checked;
+    }
+
+    static void markChecked(Context context, long now) {
+        prefs(context).edit().putLong(KEY_LAST_CHECK_AT, now).apply();
+    }
+
+    private static void enqueueCheck(Context context) {
+        OneTimeWorkRequest check = new OneTimeWorkRequest.Builder(TrafficMonitorWorker.class)
+                .setConstraints(constraints())
+                .build();
+        // A check already waiting covers this one too
+        WorkManager.getInstance(context).enqueueUniqueWork(CHECK_WORK, ExistingWorkPolicy.KEEP, check);
+    }
+
+    private static Constraints constraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+    }
+
+    private static void onGeofence(Context context, Intent intent) {
+        GeofencingEvent event = GeofencingEvent.fromIntent(intent);
+        if (event == null || event.hasError() || event.getTriggeringGeofences() == null) {
+            return;
+        }
+        SharedPreferences prefs = prefs(context);
+        Set<String> inside = new HashSet<>(prefs.getStringSet(KEY_INSIDE, new HashSet<>()));
+        boolean entered = event.getGeofenceTransition() == Geofence.GEOFENCE_TRANSITION_ENTER;
+        for (Geofence geofence : event.getTriggeringGeofences()) {
+            if (entered) {
+                inside.add(geofence.getRequestId());
+            } else {
+                inside.remove(geofence.getRequestId());
+            }
+        }
+        prefs.edit().putStringSet(KEY_INSIDE, inside).apply();
+        AppLog.d(TAG, "Inside {} corridors", inside.size());
+        if (inside.isEmpty()) {
+            stopLocationUpdates(context);
+        } else if (entered) {
+            requestLocationUpdates(context, Motion.SLOW);
+            enqueueCheck(context);
+        }
+    }
+
+    private static void onLocations(Context context, Intent intent) {
+        LocationResult result = LocationResult.extractResult(intent);
+        if (result == null || result.getLocations().isEmpty()) {
+            return;
+        }
+        List<Location> batch = result.getLocations();
+        Location last = batch.get(batch.size() - 1);
+        SharedPreferences prefs = prefs(context);
+        Motion previous = Motion.values()[prefs.getInt(KEY_MOTION, Motion.SLOW.ordinal())];
+        Motion motion = Motion.of(speed(batch));
+        if (motion != previous) {
+            requestLocationUpdates(context, motion);
+        }
+        // Moved far enough along that different incidents may now be ahead
+        double moved = CorridorStore.distanceMeters(
+                Double.longBitsToDouble(prefs.getLong(KEY_CHECKED_LAT, Double.doubleToLongBits(last.getLatitude()))),
+                Double.longBitsToDouble(prefs.getLong(KEY_CHECKED_LON, Double.doubleToLongBits(last.getLongitude()))),
+                last.getLatitude(), last.getLongitude());
+        if (moved >= RECHECK_DISTANCE_METERS || !prefs.contains(KEY_CHECKED_LAT)) {
+            prefs.edit()
+                    .putLong(KEY_CHECKED_LAT, Double.doubleToLongBits(last.getLatitude()))
+                    .putLong(KEY_CHECKED_LON, Double.doubleToLongBits(last.getLongitude()))
+                    .apply();
+            enqueueCheck(context);
+        }
+    }
+
+    // The fastest reported speed in the batch, or the average over it when none is reported
+    private static float speed(List<Location> batch) {
+        float fastest = -1;
+        for (Location location : batch) {
+            if (location.hasSpeed()) {
+                fastest = Math.max(fastest, location.getSpeed());
+            }
+        }
+        if (fastest >= 0 || batch.size() < 2) {
+            return Math.max(fastest, 0);
+        }
+        Location first = batch.get(0);
+        Location last = batch.get(batch.size() - 1);
+        long millis = last.getTime() - first.getTime();
+        return millis > 0 ? first.distanceTo(last) * 1000f / millis : 0;
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void requestLocationUpdates(Context context, Motion motion) {
+        if (!hasLocationPermission(context)) {
+            return;
+        }
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_BALANCED_POWER_ACCURACY, motion.intervalMs)
+                .setMinUpdateIntervalMillis(motion.intervalMs / 2)
+                .setMaxUpdateDelayMillis(motion.maxDelayMs)
+                .build();
+        LocationServices.getFusedLocationProviderClient(context)
+                .requestLocationUpdates(request, pendingIntent(context, ACTION_LOCATION));
+        prefs(context).edit().putInt(KEY_MOTION, motion.ordinal()).apply();
+        AppLog.d(TAG, "Following location while {}", motion);
+    }
+
+    private static void stopLocationUpdates(Context context) {
+        LocationServices.getFusedLocationProviderClient(context)
+                .removeLocationUpdates(pendingIntent(context, ACTION_LOCATION));
+    }
+
+    private static boolean hasLocationPermission(Context context) {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_BACKGROUND_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static PendingIntent pendingIntent(Context context, String action) {
+        Intent intent = new Intent(context, Receiver.class).setAction(action);
+        // Mutable: play services adds the event or locations to it
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT
+                | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : 0);
+        return PendingIntent.getBroadcast(context, action.hashCode(), intent, flags);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Receives corridor geofence transitions and batched locations, and registers the
+     * geofences again after a reboot or an app update.
+     */
+    public static final class Receiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (ACTION_GEOFENCE.equals(action)) {
+                onGeofence(context, intent);
+            } else if (ACTION_LOCATION.equals(action)) {
+                onLocations(context, intent);
+            } else if (Intent.ACTION_BOOT_COMPLETED.equals(action) || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+                refreshGeofences(context.getApplicationContext());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.saveetha.trafficguard;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the incidents in the tiles the watched corridors pass through and posts the ones
+ * along a corridor through {@link NotificationBatcher}, which remembers the incidents already
+ * shown across runs. The work only finishes once the notifications are posted, since its
+ * process may be stopped as soon as it does.
+ * Incidents are read from {@code incidents/<tile>}, one child per incident with {@code lat},
+ * {@code lon}, {@code title} and {@code location}. Matching is done on the device with
+ * {@link GeoIndex#alongCorridor}. Scheduled by {@link TrafficMonitor}.
+ */
+public class TrafficMonitorWorker extends Worker {
+
+    static final long FETCH_TIMEOUT_SECONDS = 20;
+    static final int MAX_MATCHES = 64;
+    static final long POST_TIMEOUT_MS = 10_000;
+
+    private static final String TAG = "TrafficMonitorWorker";
+    private static final Metrics.Counter FETCHES = Metrics.counter("monitor.fetches");
+    private static final Metrics.Counter SKIPPED = Metrics.counter("monitor.skipped");
+
+    public TrafficMonitorWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        long now = System.currentTimeMillis();
+        List<CorridorStore.Corridor> corridors = TrafficMonitor.corridorsToCheck(context);
+        if (corridors.isEmpty() || !TrafficMonitor.shouldFetch(context, now)) {
+            SKIPPED.increment();
+            return Result.success(); // Nothing likely changed that the user would care about
+        }
+        Set<String> tiles = new LinkedHashSet<>();
+        for (CorridorStore.Corridor corridor : corridors) {
+            tiles.addAll(corridor.tiles());
+        }
+
+        GeoIndex.Builder builder = new GeoIndex.Builder();
+        List<DataSnapshot> incidents = new ArrayList<>();
+        DatabaseReference root = FirebaseDatabase.getInstance().getReference("incidents");
+        try {
+            for (String tile : tiles) {
+                FETCHES.increment();
+                DataSnapshot snapshot = Tasks.await(root.child(tile).get(), FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                for (DataSnapshot incident : snapshot.getChildren()) {
+                    Double lat = incident.child("lat").getValue(Double.class);
+                    Double lon = incident.child("lon").getValue(Double.class);
+                    if (lat != null && lon != null) {
+                        builder.add(lat, lon, GeoIndex.FLAG_INCIDENT);
+                        incidents.add(incident);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            AppLog.w(TAG, "Failed to fetch incidents for {} tiles", tiles.size(), e);
+            return Result.retry();
+        }
+
+        GeoIndex index = builder.build();
+        NotificationBatcher batcher = NotificationBatcher.getInstance(context);
+        int[] matches = new int[MAX_MATCHES];
+        for (CorridorStore.Corridor corridor : corridors) {
+            int found = corridor.match(index, GeoIndex.FLAG_INCIDENT, matches);
+            for (int i = 0; i < found; i++) {
+                DataSnapshot incident = incidents.get(matches[i]);
+                String title = incident.child("title").getValue(String.class);
+                String location = incident.child("location").getValue(String.class);
+                if (title == null) {
+                    continue;
+                }
+                TrafficAlert.Status status = TrafficAlert.Status.of(firstWord(title));
+                boolean urgent = status == TrafficAlert.Status.HEAVY || status == TrafficAlert.Status.ACCIDENT;
+                batcher.post("corridor:" + corridor.name, incident.getKey(), title,
+                        corridor.name + (location != null ? " · " + location : ""), urgent);
+            }
+        }
+        try {
+            if (!batcher.flushNow(POST_TIMEOUT_MS)) {
+                AppLog.w(TAG, "Notifications not posted within {} ms", POST_TIMEOUT_MS);
+                return Result.retry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+        TrafficMonitor.markChecked(context, now);
+        AppLog.d(TAG, "Checked {} corridors over {} tiles, {} incidents", corridors.size(), tiles.size(), incidents.size());
+        return Result.success();
+    }
+
+    private static String firstWord(String title) {
+        int space = title.indexOf(' ');
+        return space >= 0 ? title.substring(0, space) : title;
+    }
+}
@@ -3,54 +3,33 @@ package com.saveetha.trafficguard;
 import android.app.ProgressDialog;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.util.Patterns;
-import android.view.Gravity;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.view.animation.Animation;
-import android.view.animation.AnimationSet;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import androidx.activity.result.ActivityResult;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
-import com.google.android.gms.auth.api.signin.GoogleSignInClient;
-import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.android.gms.common.api.ApiException;
-import com.google.firebase.FirebaseApp;
-import com.google.firebase.auth.AuthCredential;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
-import com.google.firebase.auth.FirebaseAuthInvalidUserException;
-import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.auth.GoogleAuthProvider;
 
 public class LoginActivity extends AppCompatActivity {
 
     private static final String TAG = "LoginActivity";
-    private FirebaseAuth mAuth;
+    private LoginViewModel viewModel;
     private EditText etEmail, etPassword;
     private Button btnLogin;
-    private Handler handler;
     private ActivityResultLauncher<Intent> googleSignInLauncher;
-    private GoogleSignInClient googleSignInClient;
     private ProgressDialog progressDialog;
-    private LayoutInflater inflater;
+    private InAppToast toast;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -64,11 +43,10 @@ public class LoginActivity extends AppCompatActivity {
                 getWindow().getDecorView().getSystemUiVisibility() | View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR
         );
 
-        // Initialize Firebase
-        FirebaseApp.initializeApp(this);
-        mAuth = FirebaseAuth.getInstance();
-        handler = new Handler(Looper.getMainLooper());
-        inflater = getLayoutInflater();
+        // Auth requests run in the ViewModel; this activity only renders their state
+        viewModel = new ViewModelProvider(this).get(LoginViewModel.class);
+        toast = new InAppToast(this);
+        toast.showCarried(getIntent());
 
         // Initialize preloader
         progressDialog = new ProgressDialog(this);
@@ -76,6 +54,23 @@ public class LoginActivity extends AppCompatActivity {
         progressDialog.setCancelable(false);
 
         initializeViews();
+        viewModel.getState().observe(this, this::render);
+    }
+
+    private void render(LoginViewModel.State state) {
+        if (state.loading) {
+            showProgressDialog();
+        } else {
+            hideProgressDialog();
+        }
+        btnLogin.setEnabled(!state.loading);
+        if (state.message != null) {
+            showCustomToast(state.message);
+            viewModel.messageShown();
+        }
+        if (state.signedIn != null) {
+            navigateToMain(state.signedIn.getEmail(), state.signedIn.getUid());
+        }
     }
 
     // Full initializeViews() — registerForActivityResult uses method reference to onGoogleSignInActivityResult
@@ -103,13 +98,6 @@ public class LoginActivity extends AppCompatActivity {
 
         btnLogin.setEnabled(true);
 
-        // Google Sign-In configuration - ensure default_web_client_id is correct in strings.xml
-        GoogleSignInOptions gso = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
-                .requestIdToken(getString(R.string.default_web_client_id))
-                .requestEmail()
-                .build();
-        googleSignInClient = GoogleSignIn.getClient(this, gso);
-
         // Register launcher and point to the handler below
         googleSignInLauncher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
@@ -138,42 +126,14 @@ public class LoginActivity extends AppCompatActivity {
                 return;
             }
 
-            showProgressDialog();
-            mAuth.signInWithEmailAndPassword(email, password)
-                    .addOnCompleteListener(signInTask -> {
-                        hideProgressDialog();
-                        if (signInTask.isSuccessful()) {
-                            FirebaseUser currentUser = mAuth.getCurrentUser();
-                            if (currentUser != null) {
-                                if (currentUser.isEmailVerified()) {
-                                    Log.d(TAG, "signInWithEmailAndPassword successful, email verified");
-                                    navigateToMain(currentUser.getEmail(), currentUser.getUid());
-                                } else {
-                                    showCustomToast("Please verify your email before logging in");
-                                    mAuth.signOut();
-                                }
-                            } else {
-                                showCustomToast("Authentication failed: No user found");
-                                Log.e(TAG, "Authentication failed: No user found");
-                            }
-                        } else {
-                            Exception e = signInTask.getException();
-                            if (e instanceof FirebaseAuthInvalidCredentialsException) {
-                                showCustomToast("Invalid email or password");
-                            } else if (e instanceof FirebaseAuthInvalidUserException) {
-                                showCustomToast("Email not registered");
-                            } else {
-                                showCustomToast("Authentication failed: " + (e != null ? e.getMessage() : "unknown"));
-                            }
-                            Log.e(TAG, "Authentication failed", e);
-                        }
-                    });
+            viewModel.signIn(email, password);
         });
 
         // Google Sign-In button
         btnGoogle.setOnClickListener(v -> {
-            Log.d(TAG, "Google Sign-In button clicked");
-            Intent signInIntent = googleSignInClient.getSignInIntent();
+            AppLog.d(TAG, "Google Sign-In button clicked");
+            // The client is only built the first time someone actually picks Google
+            Intent signInIntent = ((MyApplication) getApplication()).getGoogleSignInClient().getSignInIntent();
             googleSignInLauncher.launch(signInIntent);
         });
 
@@ -182,24 +142,13 @@ public class LoginActivity extends AppCompatActivity {
             String email = etEmail.getText().toString().trim();
             if (email.isEmpty()) { showCustomToast("Please enter your email address"); return; }
             if (!Patterns.EMAIL_ADDRESS.matcher(email).matches()) { showCustomToast("Please enter a valid email address"); return; }
-            showProgressDialog();
-            mAuth.sendPasswordResetEmail(email)
-                    .addOnCompleteListener(task -> {
-                        hideProgressDialog();
-                        if (task.isSuccessful()) {
-                            showCustomToast("Password reset email sent");
-                            Log.d(TAG, "Password reset email sent to: " + email);
-                        } else {
-                            showCustomToast("Failed to send reset email: " + (task.getException() != null ? task.getException().getMessage() : "unknown"));
-                            Log.e(TAG, "Failed to send password reset email", task.getException());
-                        }
-                    });
+            viewModel.sendPasswordReset(email);
         });
 
         // Navigate to sign-up
         tvSignUpLink.setOnClickListener(v -> {
             startActivity(new Intent(LoginActivity.this, SignUpActivity.class));
-            Log.d(TAG, "Navigating to SignUpActivity");
+            AppLog.d(TAG, "Navigating to SignUpActivity");
         });
     }
 
@@ -214,72 +163,64 @@ public class LoginActivity extends AppCompatActivity {
         Intent data = result.getData();
         int resultCode = result.getResultCode();
 
-        Log.d(TAG, "onGoogleSignInActivityResult: resultCode=" + resultCode + ", data=" + (data != null ? "present" : "null"));
+        AppLog.d(TAG, "onGoogleSignInActivityResult: resultCode={}, data={}", resultCode, data != null ? "present" : "null");
 
         // If no intent data was returned, treat it as a cancellation/failure.
         if (data == null) {
             // explicit cancel
             if (resultCode == RESULT_CANCELED) {
-                hideProgressDialog();
                 showCustomToast("Google Sign-In cancelled by user");
-                Log.w(TAG, "Google Sign-In cancelled by user (no data returned)");
+                AppLog.w(TAG, "Google Sign-In cancelled by user (no data returned)");
                 return;
             } else {
-                hideProgressDialog();
                 showCustomToast("Google Sign-In failed: no data returned");
-                Log.w(TAG, "Google Sign-In failed: resultCode=" + resultCode + ", data is null");
+                AppLog.w(TAG, "Google Sign-In failed: resultCode={}, data is null", resultCode);
                 return;
             }
         }
 
         // If we do have data, try to extract the account regardless of resultCode
-        showProgressDialog();
-
         try {
             GoogleSignInAccount account = GoogleSignIn.getSignedInAccountFromIntent(data).getResult(ApiException.class);
 
             if (account != null) {
                 String idToken = account.getIdToken();
                 if (idToken != null && !idToken.isEmpty()) {
-                    Log.d(TAG, "Google Sign-In successful, ID token present");
-                    // Continue with Firebase auth (your existing method)
-                    firebaseAuthWithGoogle(idToken);
+                    AppLog.d(TAG, "Google Sign-In successful, ID token present");
+                    // Continue with Firebase auth in the ViewModel
+                    viewModel.signInWithGoogle(idToken);
                     return;
                 } else {
-                    hideProgressDialog();
                     showCustomToast("Google Sign-In failed: missing ID token (check OAuth client / SHA fingerprints)");
-                    Log.e(TAG, "Google Sign-In account returned but idToken is null. Check default_web_client_id and SHA settings.");
+                    AppLog.e(TAG, "Google Sign-In account returned but idToken is null. Check default_web_client_id and SHA settings.");
                     return;
                 }
             } else {
-                hideProgressDialog();
                 showCustomToast("Google Sign-In failed: no account returned");
-                Log.e(TAG, "GoogleSignInAccount is null despite data present");
+                AppLog.e(TAG, "GoogleSignInAccount is null despite data present");
                 return;
             }
         } catch (ApiException e) {
-            hideProgressDialog();
             int statusCode = e.getStatusCode();
-            Log.e(TAG, "Google Sign-In ApiException: StatusCode=" + statusCode + ", Message=" + e.getMessage(), e);
+            AppLog.e(TAG, "Google Sign-In ApiException: StatusCode={}, Message={}", statusCode, e.getMessage(), e);
 
             // Use fully-qualified GoogleSignInStatusCodes to avoid unresolved symbols
             if (statusCode == com.google.android.gms.auth.api.signin.GoogleSignInStatusCodes.SIGN_IN_CANCELLED) {
                 showCustomToast("Google Sign-In cancelled");
-                Log.w(TAG, "GoogleSignInStatusCodes.SIGN_IN_CANCELLED");
+                AppLog.w(TAG, "GoogleSignInStatusCodes.SIGN_IN_CANCELLED");
             } else if (statusCode == com.google.android.gms.auth.api.signin.GoogleSignInStatusCodes.SIGN_IN_FAILED) {
                 showCustomToast("Google Sign-In failed");
-                Log.w(TAG, "GoogleSignInStatusCodes.SIGN_IN_FAILED");
+                AppLog.w(TAG, "GoogleSignInStatusCodes.SIGN_IN_FAILED");
             } else if (statusCode == com.google.android.gms.auth.api.signin.GoogleSignInStatusCodes.SIGN_IN_CURRENTLY_IN_PROGRESS) {
                 showCustomToast("Google Sign-In already in progress");
-                Log.w(TAG, "GoogleSignInStatusCodes.SIGN_IN_CURRENTLY_IN_PROGRESS");
+                AppLog.w(TAG, "GoogleSignInStatusCodes.SIGN_IN_CURRENTLY_IN_PROGRESS");
             } else {
                 // Helpful fallback — include ApiException message (e.g., 12501 or 12502 are common)
                 showCustomToast("Google Sign-In error: " + (e.getMessage() != null ? e.getMessage() : "unknown"));
             }
         } catch (Exception ex) {
-            hideProgressDialog();
             showCustomToast("Unexpected error: " + (ex.getMessage() != null ? ex.getMessage() : "unknown"));
-            Log.e(TAG, "Unexpected exception handling Google Sign-In result", ex);
+            AppLog.e(TAG, "Unexpected exception handling Google Sign-In result", ex);
         }
     }
 
@@ -298,100 +239,30 @@ public class LoginActivity extends AppCompatActivity {
         }
     }
 
-    private void firebaseAuthWithGoogle(String idToken) {
-        AuthCredential credential = GoogleAuthProvider.getCredential(idToken, null);
-        mAuth.signInWithCredential(credential)
-                .addOnCompleteListener(this, task -> {
-                    hideProgressDialog();
-                    if (task.isSuccessful()) {
-                        FirebaseUser currentUser = mAuth.getCurrentUser();
-                        if (currentUser != null) {
-                            Log.d(TAG, "Firebase auth with Google successful");
-                            navigateToMain(currentUser.getEmail(), currentUser.getUid());
-                        } else {
-                            showCustomToast("Google Sign-In failed: No user found");
-                            Log.e(TAG, "Google Sign-In failed: No user found");
-                        }
-                    } else {
-                        showCustomToast("Google Sign-In failed: " + task.getException().getMessage());
-                        Log.e(TAG, "Firebase auth with Google failed", task.getException());
-                    }
-                });
-    }
-
     private void navigateToMain(String email, String uid) {
         Intent intent = new Intent(LoginActivity.this, MainActivity.class);
         intent.putExtra("email", email);
         intent.putExtra("uid", uid);
         startActivity(intent);
-        Log.d(TAG, "Navigating to MainActivity with email: " + email + ", UID: " + uid);
+        AppLog.d(TAG, "Navigating to MainActivity with email: {}, UID: {}", AppLog.pii(email), AppLog.pii(uid));
         finish();
         overridePendingTransition(R.anim.no_animation, R.anim.fade_out_fast);
     }
 
     private void showCustomToast(String message) {
-        View toastView = inflater.inflate(R.layout.custom_toast, null);
-        TextView textView = toastView.findViewById(R.id.toast_text);
-        textView.setText(message);
-        View progressLine = toastView.findViewById(R.id.progress_line);
-        progressLine.setScaleX(1f);
-        progressLine.setVisibility(View.VISIBLE);
-
-        Toast toast = new Toast(this);
-        toast.setGravity(Gravity.BOTTOM | Gravity.END, 16, 50);
-        toast.setDuration(Toast.LENGTH_LONG);
-        toast.setView(toastView);
-
-        toastView.clearAnimation();
-        progressLine.clearAnimation();
-
-        AnimationSet animationSet = new AnimationSet(true);
-        animationSet.setInterpolator(new LinearInterpolator());
-
-        TranslateAnimation openAnim = new TranslateAnimation(
-                Animation.RELATIVE_TO_PARENT, 1f,
-                Animation.RELATIVE_TO_PARENT, 0f,
-                Animation.RELATIVE_TO_PARENT, 0f,
-                Animation.RELATIVE_TO_PARENT, 0f);
-        openAnim.setDuration(100);
-        animationSet.addAnimation(openAnim);
-
-        ScaleAnimation progressAnim = new ScaleAnimation(
-                1f, 0f, 1f, 1f,
-                Animation.RELATIVE_TO_SELF, 0f,
-                Animation.RELATIVE_TO_SELF, 0.5f);
-        progressAnim.setDuration(1500);
-        progressAnim.setInterpolator(new LinearInterpolator());
-        progressAnim.setAnimationListener(new Animation.AnimationListener() {
-            @Override
-            public void onAnimationStart(Animation animation) {}
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                progressLine.setVisibility(View.GONE);
-                toastView.setVisibility(View.GONE);
-            }
-            @Override
-            public void onAnimationRepeat(Animation animation) {}
-        });
-        progressLine.startAnimation(progressAnim);
-
-        toastView.startAnimation(animationSet);
-
-        handler.postDelayed(() -> {
-            toast.cancel();
-            progressLine.clearAnimation();
-            toastView.clearAnimation();
-        }, 1600);
+        toast.show(message);
+    }
 
-        toast.show();
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        super.onWindowFocusChanged(hasFocus);
+        toast.onWindowFocusChanged(hasFocus);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (handler != null) {
-            handler.removeCallbacksAndMessages(null);
-        }
+        toast.release();
         if (progressDialog != null && progressDialog.isShowing()) {
             progressDialog.dismiss();
         }
@@ -0,0 +1,113 @@
+package com.saveetha.trafficguard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-row work behind the alert and station lists: parsing feed lines, classifying alert
+ * status, and the item comparisons the list diff makes between two refreshes. Run with
+ * {@code -prof gc} for the allocation rate per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+
+    private static final String[] STATUS_WORDS = {"Heavy", "Accident", "Clear", "Roadworks"};
+    private static final int LINES = 1024;
+
+    @Param({"150"})
+    public int rows; // One paging window
+
+    private final String[] trafficLines = new String[LINES];
+    private final String[] stationLines = new String[LINES];
+    private final String[] statusWords = new String[LINES];
+    private List<String> feed;
+    private List<FeedItem> before;
+    private List<FeedItem> after;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < LINES; i++) {
+            String status = STATUS_WORDS[random.nextInt(STATUS_WORDS.length)];
+            trafficLines[i] = status + " traffic on Road " + random.nextInt(500)
+                    + "|" + (1 + random.nextInt(12)) + ":" + (10 + random.nextInt(50)) + " PM"
+                    + "|Junction " + random.nextInt(2000) + ", Chennai|" + random.nextInt(100);
+            stationLines[i] = "Station " + random.nextInt(5000) + "|Street " + random.nextInt(900)
+                    + "|" + random.nextInt(20) + "." + random.nextInt(10) + " km|"
+                    + random.nextInt(5) + "|" + (random.nextBoolean() ? "Open" : "Closed");
+            statusWords[i] = new String(status.toCharArray()); // Not interned, as when parsed
+        }
+        feed = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            feed.add(trafficLines[i]);
+        }
+        before = FeedParser.parse(feed, FeedParser.TYPE_TRAFFIC);
+        // A refresh: a few alerts cleared, a few new ones, the rest unchanged but re-parsed
+        List<String> refreshed = new ArrayList<>(feed.subList(5, rows));
+        for (int i = 0; i < 5; i++) {
+            refreshed.add(trafficLines[rows + i]);
+        }
+        after = FeedParser.parse(refreshed, FeedParser.TYPE_TRAFFIC);
+    }
+
+    @Benchmark
+    public FeedItem parseAlertLine() {
+        return FeedParser.parseLine(trafficLines[next++ & (LINES - 1)], FeedParser.TYPE_TRAFFIC);
+    }
+
+    @Benchmark
+    public FeedItem parseStationLine() {
+        return FeedParser.parseLine(stationLines[next++ & (LINES - 1)], FeedParser.TYPE_STATIONS);
+    }
+
+    @Benchmark
+    public List<FeedItem> parseWindow() {
+        return FeedParser.parse(feed, FeedParser.TYPE_TRAFFIC);
+    }
+
+    @Benchmark
+    public boolean isRow() {
+        return FeedParser.isRow(trafficLines[next++ & (LINES - 1)], FeedParser.TYPE_TRAFFIC);
+    }
+
+    @Benchmark
+    public TrafficAlert.Status classifyStatus() {
+        return TrafficAlert.Status.of(statusWords[next++ & (LINES - 1)]);
+    }
+
+    /**
+     * The comparisons of a diff between two refreshes whose rows mostly line up, as when the
+     * feed shifts by a few alerts: every new row against its old counterpart.
+     */
+    @Benchmark
+    public void diffWindow(Blackhole blackhole) {
+        int shift = 5;
+        for (int i = 0; i + shift < before.size(); i++) {
+            FeedItem oldItem = before.get(i + shift);
+            FeedItem newItem = after.get(i);
+            boolean same = FeedItem.sameItem(oldItem, newItem);
+            blackhole.consume(same && FeedItem.sameContents(oldItem, newItem));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.saveetha.trafficguard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link GeoIndex} over a city-sized area (about 33 km x 33 km) of randomly
+ * placed stations and incidents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoIndexBenchmark {
+
+    private static final double MIN_LAT = 12.9;
+    private static final double MIN_LON = 80.1;
+    private static final double SPAN = 0.3;
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "100000"})
+    public int points;
+
+    private GeoIndex index;
+    private final double[] queryLats = new double[QUERIES];
+    private final double[] queryLons = new double[QUERIES];
+    private final double[] corridorLats = {12.95, 13.02, 13.10, 13.15};
+    private final double[] corridorLons = {80.15, 80.22, 80.25, 80.35};
+    private final int[] out = new int[4096];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        GeoIndex.Builder builder = new GeoIndex.Builder();
+        for (int i = 0; i < points; i++) {
+            int flags = random.nextBoolean() ? GeoIndex.FLAG_STATION : GeoIndex.FLAG_INCIDENT;
+            if (random.nextInt(3) == 0) {
+                flags |= GeoIndex.FLAG_OPEN;
+            }
+            builder.add(MIN_LAT + random.nextDouble() * SPAN, MIN_LON + random.nextDouble() * SPAN, flags);
+        }
+        index = builder.build();
+        for (int i = 0; i < QUERIES; i++) {
+            queryLats[i] = MIN_LAT + random.nextDouble() * SPAN;
+            queryLons[i] = MIN_LON + random.nextDouble() * SPAN;
+        }
+    }
+
+    @Benchmark
+    public int nearestOpenStations() {
+        int q = next++ & (QUERIES - 1);
+        return index.nearest(queryLats[q], queryLons[q], 5,
+                GeoIndex.FLAG_STATION | GeoIndex.FLAG_OPEN, out);
+    }
+
+    @Benchmark
+    public int incidentsWithinOneKilometre() {
+        int q = next++ & (QUERIES - 1);
+        return index.withinRadius(queryLats[q], queryLons[q], 1000, GeoIndex.FLAG_INCIDENT, out);
+    }
+
+    @Benchmark
+    public int incidentsAlongCorridor() {
+        return index.alongCorridor(corridorLats, corridorLons, 200, GeoIndex.FLAG_INCIDENT, out);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public GeoIndex build() {
+        GeoIndex.Builder builder = new GeoIndex.Builder();
+        for (int q = 0; q < points; q++) {
+            builder.add(queryLats[q & (QUERIES - 1)], queryLons[(q * 7) & (QUERIES - 1)], GeoIndex.FLAG_STATION);
+        }
+        return builder.build();
+    }
+}
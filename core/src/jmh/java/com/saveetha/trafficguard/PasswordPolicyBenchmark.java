@@ -0,0 +1,42 @@
+package com.saveetha.trafficguard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign-up password validation for a valid password and for one that fails every rule, which
+ * builds the longest message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordPolicyBenchmark {
+
+    // Copies, so equals() has to compare the characters as it does for real input
+    public String valid = new String("Tr@ffic-Guard42".toCharArray());
+    public String validConfirm = new String("Tr@ffic-Guard42".toCharArray());
+    public String weak = new String("abc".toCharArray());
+    public String weakConfirm = new String("abc".toCharArray());
+
+    @Benchmark
+    public String validPassword() {
+        return PasswordPolicy.validate(valid, validConfirm);
+    }
+
+    @Benchmark
+    public String weakPassword() {
+        return PasswordPolicy.validate(weak, weakConfirm);
+    }
+}
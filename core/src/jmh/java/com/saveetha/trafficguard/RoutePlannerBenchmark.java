@@ -0,0 +1,84 @@
+package com.saveetha.trafficguard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route query latency on a jittered grid city: two-way streets every 100 m, with faster
+ * arterials every tenth street and a few accidents and jams applied as traffic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutePlannerBenchmark {
+
+    private static final int QUERIES = 256;
+
+    @Param({"100", "320"})
+    public int side; // 320 x 320 is about 100k intersections
+
+    private RoutePlanner planner;
+    private TrafficPenalties traffic;
+    private final int[] origins = new int[QUERIES];
+    private final int[] destinations = new int[QUERIES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                builder.addNode(12.9 + y * 0.0009 + random.nextDouble() * 0.0002,
+                        80.1 + x * 0.0009 + random.nextDouble() * 0.0002);
+            }
+        }
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int node = y * side + x;
+                double speed = y % 10 == 0 || x % 10 == 0 ? 60 : 30;
+                if (x + 1 < side) builder.addRoad(node, node + 1, 0, speed);
+                if (y + 1 < side) builder.addRoad(node, node + side, 0, speed);
+            }
+        }
+        RoadGraph graph = builder.build();
+        planner = new RoutePlanner(graph);
+        traffic = new TrafficPenalties(graph);
+        for (int i = 0; i < 20; i++) {
+            int node = random.nextInt(graph.nodeCount());
+            traffic.apply(i % 2 == 0 ? TrafficAlert.Status.ACCIDENT : TrafficAlert.Status.HEAVY,
+                    graph.latitude(node), graph.longitude(node), 300);
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            origins[i] = random.nextInt(graph.nodeCount());
+            destinations[i] = random.nextInt(graph.nodeCount());
+        }
+    }
+
+    @Benchmark
+    public RoutePlanner.Route route() {
+        int q = next++ & (QUERIES - 1);
+        return planner.route(origins[q], destinations[q], traffic);
+    }
+
+    @Benchmark
+    public RoutePlanner.Route routeFreeFlow() {
+        int q = next++ & (QUERIES - 1);
+        return planner.route(origins[q], destinations[q], null);
+    }
+}
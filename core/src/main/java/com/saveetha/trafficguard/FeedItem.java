@@ -0,0 +1,28 @@
+package com.saveetha.trafficguard;
+
+/**
+ * A row in the traffic alerts or petrol stations list. Rows are immutable and parsed once
+ * when the feed arrives, so binding a row never has to look at the raw feed line again.
+ */
+public interface FeedItem {
+
+    /**
+     * Identity of the row, stable across feed refreshes. Never negative.
+     */
+    long getId();
+
+    /**
+     * Whether two rows are the same incident or station, possibly with changed contents.
+     * Backs the list's diff callback.
+     */
+    static boolean sameItem(FeedItem oldItem, FeedItem newItem) {
+        return oldItem.getId() == newItem.getId() && oldItem.getClass() == newItem.getClass();
+    }
+
+    /**
+     * Whether a row that is {@link #sameItem} would look the same when bound.
+     */
+    static boolean sameContents(FeedItem oldItem, FeedItem newItem) {
+        return oldItem.equals(newItem);
+    }
+}
@@ -0,0 +1,32 @@
+package com.saveetha.trafficguard;
+
+/**
+ * A status row such as "No alerts nearby" or "Failed to load stations" shown in place of data.
+ */
+public final class FeedMessage implements FeedItem {
+
+    public final long id;
+    public final String text;
+
+    FeedMessage(long id, String text) {
+        this.id = id;
+        this.text = text;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FeedMessage)) return false;
+        return text.equals(((FeedMessage) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+}
@@ -0,0 +1,219 @@
+package com.saveetha.trafficguard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses the pipe-delimited traffic alert and petrol station feeds into {@link FeedItem}s.
+ * Splits with indexOf rather than a regex, and is meant to run off the main thread.
+ */
+public final class FeedParser {
+
+    public static final int TYPE_TRAFFIC = 0;
+    public static final int TYPE_STATIONS = 1;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private FeedParser() {
+    }
+
+    public static List<FeedItem> parse(List<String> lines, int type) {
+        if (lines == null) {
+            return new ArrayList<>();
+        }
+        List<FeedItem> items = new ArrayList<>(lines.size());
+        Set<Long> ids = new HashSet<>();
+        String[] fields = new String[5];
+        for (int i = 0; i < lines.size(); i++) {
+            FeedItem item = parseLine(lines.get(i), type, fields);
+            if (item == null) {
+                continue;
+            }
+            long id = unique(item.getId(), ids);
+            items.add(id == item.getId() ? item : withId(item, id));
+        }
+        return items;
+    }
+
+    /**
+     * Makes the first {@code count} ids unique the same way {@link #parse} does, so rows paged
+     * from a snapshot get the ids a full parse would have given them.
+     */
+    static void dedupe(long[] ids, int count) {
+        Set<Long> seen = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            ids[i] = unique(ids[i], seen);
+        }
+    }
+
+    // Two rows can share an identity (e.g. two alerts at the same place and time); the later
+    // one gets its own id, which stays stable while the order does
+    private static long unique(long id, Set<Long> seen) {
+        while (!seen.add(id)) {
+            id = (id * FNV_PRIME + 1) & Long.MAX_VALUE;
+        }
+        return id;
+    }
+
+    /**
+     * {@code item} with its id replaced.
+     */
+    static FeedItem withId(FeedItem item, long id) {
+        if (item instanceof TrafficAlert) {
+            TrafficAlert alert = (TrafficAlert) item;
+            return new TrafficAlert(id, alert.title, alert.time, alert.location);
+        } else if (item instanceof FuelStation) {
+            FuelStation station = (FuelStation) item;
+            return new FuelStation(id, station.name, station.vicinity, station.distance, station.statusLabel);
+        }
+        return new FeedMessage(id, ((FeedMessage) item).text);
+    }
+
+    /**
+     * The id {@link #parseLine} gives a line that {@link #isRow}, worked out without splitting
+     * the line or parsing the row.
+     */
+    static long rowId(String line, int type) {
+        if (line == null) {
+            return id(-1, "No data available", "");
+        }
+        if (isMessage(line)) {
+            return id(-1, line, "");
+        }
+        // Traffic rows are named by location and time, stations by name and vicinity
+        int first = fieldStart(line, type == TYPE_TRAFFIC ? 2 : 0);
+        int second = fieldStart(line, 1);
+        long hash = FNV_OFFSET ^ type;
+        hash = hash(hash, line, first, fieldEnd(line, first));
+        hash = (hash ^ '|') * FNV_PRIME;
+        hash = hash(hash, line, second, fieldEnd(line, second));
+        return hash & Long.MAX_VALUE;
+    }
+
+    /**
+     * The id of a streamed row, from the child key it is stored under, so an edit to any of its
+     * fields keeps its id.
+     */
+    static long keyId(int type, String key) {
+        long hash = (FNV_OFFSET ^ type ^ '#') * FNV_PRIME;
+        return hash(hash, key) & Long.MAX_VALUE;
+    }
+
+    private static int fieldStart(String line, int field) {
+        int start = 0;
+        for (int i = 0; i < field; i++) {
+            start = line.indexOf('|', start) + 1;
+        }
+        return start;
+    }
+
+    private static int fieldEnd(String line, int start) {
+        int end = line.indexOf('|', start);
+        return end < 0 ? line.length() : end;
+    }
+
+    public static FeedItem parseLine(String line, int type) {
+        return parseLine(line, type, new String[5]);
+    }
+
+    /**
+     * Returns the row for a single feed line, or null if the line does not have enough fields.
+     */
+    private static FeedItem parseLine(String line, int type, String[] fields) {
+        if (line == null) {
+            return message("No data available");
+        }
+        if (isMessage(line)) {
+            return message(line);
+        }
+        int count = split(line, fields);
+        if (type == TYPE_TRAFFIC) {
+            if (count < 4) return null;
+            long id = id(type, fields[2], fields[1]);
+            return new TrafficAlert(id, fields[0], fields[1], fields[2]);
+        } else {
+            if (count < 5) return null;
+            long id = id(type, fields[0], fields[1]);
+            return new FuelStation(id, fields[0], fields[1], fields[2], fields[4]);
+        }
+    }
+
+    /**
+     * Whether {@link #parseLine} returns a row for {@code line}, checked without allocating.
+     */
+    static boolean isRow(String line, int type) {
+        if (line == null || isMessage(line)) {
+            return true;
+        }
+        int count = 0;
+        int nonEmpty = 0;
+        int start = 0;
+        int length = line.length();
+        while (true) {
+            int end = line.indexOf('|', start);
+            if (end < 0) end = length;
+            count++;
+            if (end > start) nonEmpty = count;
+            if (end == length) break;
+            start = end + 1;
+        }
+        return nonEmpty >= (type == TYPE_TRAFFIC ? 4 : 5);
+    }
+
+    static boolean isMessage(String line) {
+        return line.startsWith("No ") || line.startsWith("Failed");
+    }
+
+    static FeedMessage message(String text) {
+        return new FeedMessage(id(-1, text, ""), text);
+    }
+
+    /**
+     * Splits {@code line} on '|' into {@code out}, stopping once {@code out} is full.
+     * Returns the number of fields in the line, not counting trailing empty ones.
+     */
+    static int split(String line, String[] out) {
+        int count = 0;
+        int nonEmpty = 0;
+        int start = 0;
+        int length = line.length();
+        while (true) {
+            int end = line.indexOf('|', start);
+            if (end < 0) end = length;
+            if (count < out.length) {
+                out[count] = line.substring(start, end);
+            }
+            count++;
+            if (end > start) nonEmpty = count;
+            if (end == length) break;
+            start = end + 1;
+        }
+        return nonEmpty;
+    }
+
+    /**
+     * Row identity: an FNV-1a hash of the fields that name the incident or station, so a status
+     * change on the same row keeps its id. The sign bit is cleared to keep ids non-negative.
+     */
+    static long id(int type, String a, String b) {
+        long hash = FNV_OFFSET ^ type;
+        hash = hash(hash, a);
+        hash = (hash ^ '|') * FNV_PRIME;
+        hash = hash(hash, b);
+        return hash & Long.MAX_VALUE;
+    }
+
+    private static long hash(long hash, String s) {
+        return hash(hash, s, 0, s.length());
+    }
+
+    private static long hash(long hash, String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
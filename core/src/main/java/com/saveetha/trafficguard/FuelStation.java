@@ -0,0 +1,60 @@
+package com.saveetha.trafficguard;
+
+/**
+ * A petrol station parsed from a feed line of the form {@code name|vicinity|distance|...|openStatus}.
+ */
+public final class FuelStation implements FeedItem {
+
+    public enum Status {
+        OPEN(0xFF4CAF50),
+        CLOSED(0xFFFF3B30);
+
+        public final int color;
+
+        Status(int color) {
+            this.color = color;
+        }
+    }
+
+    public final long id;
+    public final String name;
+    public final String vicinity;
+    public final String distance;
+    public final String statusLabel; // As sent by the feed, e.g. "Open" or "Closed"
+    public final Status status;
+
+    FuelStation(long id, String name, String vicinity, String distance, String statusLabel) {
+        this.id = id;
+        this.name = name;
+        this.vicinity = vicinity;
+        this.distance = distance;
+        this.statusLabel = statusLabel;
+        this.status = statusLabel.equals("Open") ? Status.OPEN : Status.CLOSED;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    public int getStatusColor() {
+        return status.color;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FuelStation)) return false;
+        FuelStation other = (FuelStation) o;
+        return id == other.id
+                && name.equals(other.name)
+                && vicinity.equals(other.vicinity)
+                && distance.equals(other.distance)
+                && statusLabel.equals(other.statusLabel);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id) * 31 + distance.hashCode();
+    }
+}
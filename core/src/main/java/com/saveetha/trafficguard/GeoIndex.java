@@ -0,0 +1,357 @@
+package com.saveetha.trafficguard;
+
+import java.util.Arrays;
+
+/**
+ * Immutable spatial index over petrol stations and traffic incidents, for "nearest k open
+ * stations" and "incidents within a radius or along a corridor" queries.
+ *
+ * <p>Points are projected to metres around the centre of the data set (accurate to well under a
+ * percent across a city) and bucketed into a uniform grid sized for a handful of points per cell.
+ * Points are stored sorted by cell in primitive arrays, so a query only touches the cells it needs
+ * and allocates nothing but its small result heap. Queries are safe to run from any thread.
+ *
+ * <p>Results are written as the indices the points were added with, so callers can map them back
+ * to their own rows.
+ */
+public final class GeoIndex {
+
+    public static final int FLAG_STATION = 1;
+    public static final int FLAG_INCIDENT = 1 << 1;
+    public static final int FLAG_OPEN = 1 << 2;
+
+    private static final double METERS_PER_DEGREE = 111320.0;
+    private static final int POINTS_PER_CELL = 4;
+    private static final double MIN_CELL_METERS = 50;
+    private static final int MAX_CELLS = 1 << 22;
+
+    private final double originLat;
+    private final double originLon;
+    private final double metersPerDegreeLon;
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellStart; // Points of cell c are at [cellStart[c], cellStart[c + 1])
+
+    // Per point, sorted by cell
+    private final float[] xs;
+    private final float[] ys;
+    private final int[] flags;
+    private final int[] indices;
+
+    private GeoIndex(double[] lats, double[] lons, int[] pointFlags, int count) {
+        double sumLat = 0, sumLon = 0;
+        for (int i = 0; i < count; i++) {
+            sumLat += lats[i];
+            sumLon += lons[i];
+        }
+        originLat = count > 0 ? sumLat / count : 0;
+        originLon = count > 0 ? sumLon / count : 0;
+        metersPerDegreeLon = METERS_PER_DEGREE * Math.cos(Math.toRadians(originLat));
+
+        double[] px = new double[count];
+        double[] py = new double[count];
+        double loX = Double.MAX_VALUE, loY = Double.MAX_VALUE;
+        double hiX = -Double.MAX_VALUE, hiY = -Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            px[i] = projectX(lons[i]);
+            py[i] = projectY(lats[i]);
+            loX = Math.min(loX, px[i]);
+            loY = Math.min(loY, py[i]);
+            hiX = Math.max(hiX, px[i]);
+            hiY = Math.max(hiY, py[i]);
+        }
+        if (count == 0) {
+            loX = loY = hiX = hiY = 0;
+        }
+        double width = hiX - loX;
+        double height = hiY - loY;
+        double size = Math.sqrt(width * height / Math.max(1, count / POINTS_PER_CELL));
+        size = Math.max(size, MIN_CELL_METERS);
+        while ((long) ((width / size) + 1) * (long) ((height / size) + 1) > MAX_CELLS) {
+            size *= 2;
+        }
+        minX = loX;
+        minY = loY;
+        cellSize = size;
+        cols = (int) (width / size) + 1;
+        rows = (int) (height / size) + 1;
+
+        // Counting sort of the points by cell
+        int[] cellOf = new int[count];
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < count; i++) {
+            cellOf[i] = cellY(py[i]) * cols + cellX(px[i]);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cols * rows);
+        xs = new float[count];
+        ys = new float[count];
+        flags = new int[count];
+        indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            int slot = next[cellOf[i]]++;
+            xs[slot] = (float) px[i];
+            ys[slot] = (float) py[i];
+            flags[slot] = pointFlags[i];
+            indices[slot] = i;
+        }
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Writes the indices of the {@code k} points nearest to the given location that have all of
+     * {@code requiredFlags} into {@code out}, nearest first. Returns how many were found, which is
+     * less than {@code k} only if fewer points match.
+     */
+    public int nearest(double lat, double lon, int k, int requiredFlags, int[] out) {
+        k = Math.min(k, out.length);
+        if (k <= 0 || xs.length == 0) {
+            return 0;
+        }
+        double qx = projectX(lon);
+        double qy = projectY(lat);
+        int cx = clamp(cellX(qx), cols);
+        int cy = clamp(cellY(qy), rows);
+
+        // Max-heap on distance of the best k found so far
+        float[] heapDist = new float[k];
+        int[] heapSlot = new int[k];
+        int found = 0;
+        int maxRing = Math.max(cols, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            int x0 = cx - ring, x1 = cx + ring, y0 = cy - ring, y1 = cy + ring;
+            for (int y = Math.max(y0, 0); y <= Math.min(y1, rows - 1); y++) {
+                boolean edgeRow = y == y0 || y == y1;
+                for (int x = Math.max(x0, 0); x <= Math.min(x1, cols - 1); x++) {
+                    if (!edgeRow && x != x0 && x != x1) {
+                        continue; // Inside the ring, already visited
+                    }
+                    int cell = y * cols + x;
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        if ((flags[p] & requiredFlags) != requiredFlags) {
+                            continue;
+                        }
+                        float d = distanceSquared(qx, qy, p);
+                        if (found < k) {
+                            heapDist[found] = d;
+                            heapSlot[found] = p;
+                            siftUp(heapDist, heapSlot, found++);
+                        } else if (d < heapDist[0]) {
+                            heapDist[0] = d;
+                            heapSlot[0] = p;
+                            siftDown(heapDist, heapSlot, 0, k);
+                        }
+                    }
+                }
+            }
+            if (found == k) {
+                // Anything not visited yet lies outside the square of cells covered so far
+                double reach = Math.min(
+                        Math.min(qx - (minX + x0 * cellSize), minX + (x1 + 1) * cellSize - qx),
+                        Math.min(qy - (minY + y0 * cellSize), minY + (y1 + 1) * cellSize - qy));
+                if (reach > 0 && reach * reach >= heapDist[0]) {
+                    break;
+                }
+            }
+        }
+        // Pop the heap from the back so the nearest point ends up first
+        for (int n = found; n > 0; n--) {
+            out[n - 1] = indices[heapSlot[0]];
+            heapDist[0] = heapDist[n - 1];
+            heapSlot[0] = heapSlot[n - 1];
+            siftDown(heapDist, heapSlot, 0, n - 1);
+        }
+        return found;
+    }
+
+    /**
+     * Writes the indices of the points within {@code radiusMeters} of the given location that have
+     * all of {@code requiredFlags} into {@code out}, in no particular order. Returns how many were
+     * written; matches beyond {@code out.length} are dropped.
+     */
+    public int withinRadius(double lat, double lon, double radiusMeters, int requiredFlags, int[] out) {
+        if (xs.length == 0) {
+            return 0;
+        }
+        double qx = projectX(lon);
+        double qy = projectY(lat);
+        double limit = radiusMeters * radiusMeters;
+        int found = 0;
+        int x0 = clamp(cellX(qx - radiusMeters), cols), x1 = clamp(cellX(qx + radiusMeters), cols);
+        int y0 = clamp(cellY(qy - radiusMeters), rows), y1 = clamp(cellY(qy + radiusMeters), rows);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int cell = y * cols + x;
+                for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                    if ((flags[p] & requiredFlags) == requiredFlags
+                            && distanceSquared(qx, qy, p) <= limit) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = indices[p];
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes the indices of the points within {@code bufferMeters} of the polyline through the
+     * given vertices that have all of {@code requiredFlags} into {@code out}, sorted by index.
+     * Returns how many were written; matches beyond {@code out.length} are dropped.
+     */
+    public int alongCorridor(double[] lats, double[] lons, double bufferMeters, int requiredFlags, int[] out) {
+        if (xs.length == 0 || lats.length == 0) {
+            return 0;
+        }
+        double limit = bufferMeters * bufferMeters;
+        int found = 0;
+        for (int s = 0; s < Math.max(1, lats.length - 1) && found < out.length; s++) {
+            int e = Math.min(s + 1, lats.length - 1);
+            double ax = projectX(lons[s]), ay = projectY(lats[s]);
+            double bx = projectX(lons[e]), by = projectY(lats[e]);
+            int x0 = clamp(cellX(Math.min(ax, bx) - bufferMeters), cols);
+            int x1 = clamp(cellX(Math.max(ax, bx) + bufferMeters), cols);
+            int y0 = clamp(cellY(Math.min(ay, by) - bufferMeters), rows);
+            int y1 = clamp(cellY(Math.max(ay, by) + bufferMeters), rows);
+            for (int y = y0; y <= y1 && found < out.length; y++) {
+                for (int x = x0; x <= x1 && found < out.length; x++) {
+                    int cell = y * cols + x;
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        if ((flags[p] & requiredFlags) == requiredFlags
+                                && segmentDistanceSquared(xs[p], ys[p], ax, ay, bx, by) <= limit
+                                && (s == 0 || !contains(out, found, indices[p]))) {
+                            out[found++] = indices[p];
+                            if (found == out.length) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        Arrays.sort(out, 0, found);
+        return found;
+    }
+
+    // Points near a vertex are within the buffer of both segments that meet there, so a
+    // later segment skips what earlier ones found before it takes up room in out
+    private static boolean contains(int[] out, int count, int index) {
+        for (int i = 0; i < count; i++) {
+            if (out[i] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double projectX(double lon) {
+        return (lon - originLon) * metersPerDegreeLon;
+    }
+
+    private double projectY(double lat) {
+        return (lat - originLat) * METERS_PER_DEGREE;
+    }
+
+    private int cellX(double x) {
+        return (int) Math.floor((x - minX) / cellSize);
+    }
+
+    private int cellY(double y) {
+        return (int) Math.floor((y - minY) / cellSize);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return cell < 0 ? 0 : Math.min(cell, cells - 1);
+    }
+
+    private float distanceSquared(double qx, double qy, int p) {
+        double dx = xs[p] - qx;
+        double dy = ys[p] - qy;
+        return (float) (dx * dx + dy * dy);
+    }
+
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax + t * dx - px;
+        double ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    private static void siftUp(float[] dist, int[] slot, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (dist[parent] >= dist[i]) {
+                break;
+            }
+            swap(dist, slot, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(float[] dist, int[] slot, int i, int size) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && dist[left] > dist[largest]) largest = left;
+            if (right < size && dist[right] > dist[largest]) largest = right;
+            if (largest == i) {
+                return;
+            }
+            swap(dist, slot, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(float[] dist, int[] slot, int a, int b) {
+        float d = dist[a];
+        dist[a] = dist[b];
+        dist[b] = d;
+        int s = slot[a];
+        slot[a] = slot[b];
+        slot[b] = s;
+    }
+
+    /**
+     * Collects points before building the index. Each point's index is the order it was added in.
+     */
+    public static final class Builder {
+        private double[] lats = new double[64];
+        private double[] lons = new double[64];
+        private int[] flags = new int[64];
+        private int count;
+
+        public int add(double lat, double lon, int pointFlags) {
+            if (count == lats.length) {
+                int capacity = count * 2;
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            lats[count] = lat;
+            lons[count] = lon;
+            flags[count] = pointFlags;
+            return count++;
+        }
+
+        public GeoIndex build() {
+            return new GeoIndex(lats, lons, flags, count);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.saveetha.trafficguard;
+
+/**
+ * The sign-up password rules: at least 8 characters with an uppercase letter, a lowercase
+ * letter, a digit and a symbol. Plain Java, so it can be benchmarked off the device.
+ */
+public final class PasswordPolicy {
+
+    static final int MIN_LENGTH = 8;
+
+    private PasswordPolicy() {
+    }
+
+    /**
+     * Returns what is wrong with the password, one requirement per line, or null if it is valid
+     * and matches the confirmation.
+     */
+    public static String validate(String password, String confirmPassword) {
+        if (password == null || password.isEmpty()) {
+            return "Please enter password";
+        }
+        if (confirmPassword == null || confirmPassword.isEmpty()) {
+            return "Please confirm your password";
+        }
+        if (!password.equals(confirmPassword)) {
+            return "Passwords do not match";
+        }
+
+        boolean hasUpper = false;
+        boolean hasLower = false;
+        boolean hasDigit = false;
+        boolean hasSymbol = false;
+
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (Character.isUpperCase(c)) hasUpper = true;
+            else if (Character.isLowerCase(c)) hasLower = true;
+            else if (Character.isDigit(c)) hasDigit = true;
+            else hasSymbol = true;
+        }
+
+        boolean longEnough = password.length() >= MIN_LENGTH;
+        if (longEnough && hasUpper && hasLower && hasDigit && hasSymbol) {
+            return null; // valid, without building a message
+        }
+
+        StringBuilder errorBuilder = new StringBuilder("Password must contain:");
+        if (!longEnough) errorBuilder.append("\n• At least 8 characters long");
+        if (!hasUpper) errorBuilder.append("\n• At least one uppercase letter");
+        if (!hasLower) errorBuilder.append("\n• At least one lowercase letter");
+        if (!hasDigit) errorBuilder.append("\n• At least one number");
+        if (!hasSymbol) errorBuilder.append("\n• At least one special symbol (e.g. !@#$%^&*)");
+        return errorBuilder.toString();
+    }
+}
@@ -0,0 +1,223 @@
+package com.saveetha.trafficguard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A road graph and its points of interest for one region, memory-mapped from a file written by
+ * {@link RegionWriter}. Opening a region reads only the header; graph and POI data are used in
+ * place from the mapping, so the OS pages in just the parts that are touched. Nodes and POIs are
+ * stored sorted by {@link TileGrid} tile, so everything around the user sits in a few contiguous
+ * ranges, which {@link #prefetch} can fault in ahead of time.
+ *
+ * <p>Layout, little-endian: a 64-byte header followed by int sections in this order:
+ * <pre>
+ *   header      magic, version, nodeCount, edgeCount, poiCount, nameBytes,
+ *               minLat, minLon, tileDegrees (doubles), cols, rows, maxMetersPerMs (double)
+ *   nodeTileStart[tiles + 1]  firstEdge[nodes + 1]
+ *   edgeTarget[edges]  edgeTimeMs[edges]  edgeLengthM[edges]
+ *   nodeLatE6[nodes]  nodeLonE6[nodes]
+ *   poiTileStart[tiles + 1]  poiLatE6[pois]  poiLonE6[pois]  poiFlags[pois]  poiNameStart[pois + 1]
+ *   names[nameBytes]  UTF-8
+ * </pre>
+ */
+public final class RegionFile {
+
+    static final int MAGIC = 0x46524754; // "TGRF" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int PAGE_BYTES = 4096;
+
+    private final ByteBuffer map;
+    private final TileGrid tiles;
+    private final RoadGraph graph;
+    private final IntBuffer nodeTileStart;
+    private final IntBuffer firstEdge;
+    private final IntBuffer edgeTarget;
+    private final IntBuffer edgeTimeMs;
+    private final IntBuffer nodeLatE6;
+    private final IntBuffer nodeLonE6;
+    private final IntBuffer poiTileStart;
+    private final IntBuffer poiLatE6;
+    private final IntBuffer poiLonE6;
+    private final IntBuffer poiFlags;
+    private final IntBuffer poiNameStart;
+    private final int namesOffset;
+    private volatile int prefetchSink; // Keeps prefetch reads from being optimised away
+
+    private RegionFile(ByteBuffer map) throws IOException {
+        this.map = map;
+        if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) {
+            throw new IOException("Not a region file");
+        }
+        int version = map.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported region file version " + version);
+        }
+        int nodes = map.getInt(8);
+        int edges = map.getInt(12);
+        int pois = map.getInt(16);
+        int nameBytes = map.getInt(20);
+        tiles = new TileGrid(map.getDouble(24), map.getDouble(32), map.getDouble(40), map.getInt(48), map.getInt(52));
+        double maxMetersPerMs = map.getDouble(56);
+
+        Sections sections = new Sections(HEADER_BYTES);
+        nodeTileStart = sections.next(tiles.tileCount() + 1);
+        firstEdge = sections.next(nodes + 1);
+        edgeTarget = sections.next(edges);
+        edgeTimeMs = sections.next(edges);
+        IntBuffer edgeLengthM = sections.next(edges);
+        nodeLatE6 = sections.next(nodes);
+        nodeLonE6 = sections.next(nodes);
+        poiTileStart = sections.next(tiles.tileCount() + 1);
+        poiLatE6 = sections.next(pois);
+        poiLonE6 = sections.next(pois);
+        poiFlags = sections.next(pois);
+        poiNameStart = sections.next(pois + 1);
+        namesOffset = sections.offset;
+        if ((long) namesOffset + nameBytes > map.capacity()) {
+            throw new IOException("Truncated region file");
+        }
+        graph = new RoadGraph(firstEdge, edgeTarget, edgeTimeMs, edgeLengthM, nodeLatE6, nodeLonE6,
+                maxMetersPerMs, tiles, nodeTileStart);
+    }
+
+    public static RegionFile open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            return new RegionFile(map); // The mapping stays valid after the file is closed
+        } finally {
+            raf.close();
+        }
+    }
+
+    public TileGrid getTiles() {
+        return tiles;
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int poiCount() {
+        return poiLatE6.limit();
+    }
+
+    public double poiLatitude(int poi) {
+        return poiLatE6.get(poi) / 1e6;
+    }
+
+    public double poiLongitude(int poi) {
+        return poiLonE6.get(poi) / 1e6;
+    }
+
+    /** {@link GeoIndex} flags of the POI, e.g. station and open. */
+    public int poiFlags(int poi) {
+        return poiFlags.get(poi);
+    }
+
+    public String poiName(int poi) {
+        int start = poiNameStart.get(poi);
+        int end = poiNameStart.get(poi + 1);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = map.get(namesOffset + start + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes the POIs in the 3x3 block of tiles around the given location that have all of
+     * {@code requiredFlags} into {@code out}, and returns how many were written.
+     */
+    public int poisNear(double lat, double lon, int requiredFlags, int[] out) {
+        int row = tiles.row(lat);
+        int col = tiles.col(lon);
+        int found = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(tiles.rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(tiles.cols - 1, col + 1); c++) {
+                int tile = r * tiles.cols + c;
+                for (int p = poiTileStart.get(tile); p < poiTileStart.get(tile + 1); p++) {
+                    if ((poiFlags.get(p) & requiredFlags) == requiredFlags) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = p;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Faults in the nodes, edges and POIs of the 3x3 block of tiles around the given location, so
+     * the first route or list around the user does not wait on disk. Blocks on I/O; call it off
+     * the main thread.
+     */
+    public void prefetch(double lat, double lon) {
+        int row = tiles.row(lat);
+        int col = tiles.col(lon);
+        int sink = 0;
+        for (int r = Math.max(0, row - 1); r <= Math.min(tiles.rows - 1, row + 1); r++) {
+            int first = r * tiles.cols + Math.max(0, col - 1);
+            int last = r * tiles.cols + Math.min(tiles.cols - 1, col + 1);
+            // Tiles in a row are contiguous, so each row is one range per section
+            int firstNode = nodeTileStart.get(first);
+            int endNode = nodeTileStart.get(last + 1);
+            sink += touch(nodeLatE6, firstNode, endNode);
+            sink += touch(nodeLonE6, firstNode, endNode);
+            sink += touch(firstEdge, firstNode, endNode + 1);
+            // Edges are stored in the order of their source nodes, so they are contiguous too
+            sink += touch(edgeTarget, firstEdge.get(firstNode), firstEdge.get(endNode));
+            sink += touch(edgeTimeMs, firstEdge.get(firstNode), firstEdge.get(endNode));
+            int firstPoi = poiTileStart.get(first);
+            int endPoi = poiTileStart.get(last + 1);
+            sink += touch(poiLatE6, firstPoi, endPoi);
+            sink += touch(poiLonE6, firstPoi, endPoi);
+            sink += touch(poiFlags, firstPoi, endPoi);
+        }
+        prefetchSink = sink;
+    }
+
+    private static int touch(IntBuffer buffer, int from, int to) {
+        int sum = 0;
+        for (int i = from; i < to; i += PAGE_BYTES / 4) {
+            sum += buffer.get(i);
+        }
+        return sum;
+    }
+
+    /** Hands out consecutive int sections of the mapping. */
+    private final class Sections {
+        int offset;
+
+        Sections(int offset) {
+            this.offset = offset;
+        }
+
+        IntBuffer next(int ints) throws IOException {
+            long end = (long) offset + (long) ints * 4;
+            if (ints < 0 || end > map.capacity()) {
+                throw new IOException("Truncated region file");
+            }
+            ByteBuffer section = map.duplicate();
+            section.position(offset);
+            section.limit((int) end);
+            offset = (int) end;
+            return section.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.saveetha.trafficguard;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Directed road graph in compressed sparse row form: the edges leaving node {@code n} are
+ * {@code firstEdge(n)} up to {@code firstEdge(n + 1)}. Everything lives in flat int buffers, either
+ * on the heap for a graph built in memory or mapped straight from a {@link RegionFile}, so a
+ * city-sized graph takes a few megabytes and can be walked without allocating.
+ *
+ * <p>Edge costs are free-flow travel times in milliseconds; live traffic is applied on top by
+ * {@link TrafficPenalties}.
+ */
+public final class RoadGraph {
+
+    static final double METERS_PER_DEGREE = 111320.0;
+
+    private final IntBuffer firstEdge;
+    private final IntBuffer edgeTarget;
+    private final IntBuffer edgeTimeMs;
+    private final IntBuffer edgeLengthM;
+    private final IntBuffer latE6;
+    private final IntBuffer lonE6;
+
+    /** Fastest free-flow speed on any edge, which keeps the A* heuristic admissible. */
+    final double maxMetersPerMs;
+
+    // Set for graphs whose nodes are sorted by tile, e.g. mapped from a region file
+    private final TileGrid tiles;
+    private final IntBuffer nodeTileStart;
+
+    private GeoIndex nodeIndex;
+
+    RoadGraph(IntBuffer firstEdge, IntBuffer edgeTarget, IntBuffer edgeTimeMs, IntBuffer edgeLengthM,
+              IntBuffer latE6, IntBuffer lonE6, double maxMetersPerMs,
+              TileGrid tiles, IntBuffer nodeTileStart) {
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeTimeMs = edgeTimeMs;
+        this.edgeLengthM = edgeLengthM;
+        this.latE6 = latE6;
+        this.lonE6 = lonE6;
+        this.maxMetersPerMs = maxMetersPerMs;
+        this.tiles = tiles;
+        this.nodeTileStart = nodeTileStart;
+    }
+
+    public int nodeCount() {
+        return latE6.limit();
+    }
+
+    public int edgeCount() {
+        return edgeTarget.limit();
+    }
+
+    int firstEdge(int node) {
+        return firstEdge.get(node);
+    }
+
+    int edgeTarget(int edge) {
+        return edgeTarget.get(edge);
+    }
+
+    int edgeTimeMs(int edge) {
+        return edgeTimeMs.get(edge);
+    }
+
+    int edgeLengthM(int edge) {
+        return edgeLengthM.get(edge);
+    }
+
+    int latE6(int node) {
+        return latE6.get(node);
+    }
+
+    int lonE6(int node) {
+        return lonE6.get(node);
+    }
+
+    public double latitude(int node) {
+        return latE6.get(node) / 1e6;
+    }
+
+    public double longitude(int node) {
+        return lonE6.get(node) / 1e6;
+    }
+
+    /**
+     * The node closest to the given location, or -1 for an empty graph.
+     */
+    public int nearestNode(double lat, double lon) {
+        if (nodeCount() == 0) {
+            return -1;
+        }
+        if (tiles == null) {
+            int[] out = new int[1];
+            return nodeIndex().nearest(lat, lon, 1, 0, out) == 1 ? out[0] : -1;
+        }
+        // Search rings of tiles until nothing unsearched can be closer than the best so far
+        int row = tiles.row(lat);
+        int col = tiles.col(lon);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int ring = 0; ring <= Math.max(tiles.rows, tiles.cols); ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                for (int c = col - ring; c <= col + ring; c++) {
+                    boolean onRing = r == row - ring || r == row + ring || c == col - ring || c == col + ring;
+                    if (!onRing || r < 0 || c < 0 || r >= tiles.rows || c >= tiles.cols) {
+                        continue;
+                    }
+                    int tile = r * tiles.cols + c;
+                    for (int n = nodeTileStart.get(tile); n < nodeTileStart.get(tile + 1); n++) {
+                        double distance = distanceMeters(lat, lon, n);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = n;
+                        }
+                    }
+                }
+            }
+            if (best >= 0 && bestDistance <= ring * tiles.tileMeters() * Math.cos(Math.toRadians(lat))) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the nodes within {@code radiusMeters} of the given location into {@code out} and
+     * returns how many were written; matches beyond {@code out.length} are dropped.
+     */
+    public int nodesWithin(double lat, double lon, double radiusMeters, int[] out) {
+        if (tiles == null) {
+            return nodeIndex().withinRadius(lat, lon, radiusMeters, 0, out);
+        }
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double dLon = dLat / Math.cos(Math.toRadians(lat));
+        int found = 0;
+        for (int r = tiles.row(lat - dLat); r <= tiles.row(lat + dLat); r++) {
+            for (int c = tiles.col(lon - dLon); c <= tiles.col(lon + dLon); c++) {
+                int tile = r * tiles.cols + c;
+                for (int n = nodeTileStart.get(tile); n < nodeTileStart.get(tile + 1); n++) {
+                    if (distanceMeters(lat, lon, n) <= radiusMeters) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = n;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private synchronized GeoIndex nodeIndex() {
+        if (nodeIndex == null) {
+            GeoIndex.Builder builder = new GeoIndex.Builder();
+            for (int n = 0; n < nodeCount(); n++) {
+                builder.add(latitude(n), longitude(n), 0);
+            }
+            nodeIndex = builder.build();
+        }
+        return nodeIndex;
+    }
+
+    /**
+     * Straight-line distance between two nodes in metres, equirectangular approximation.
+     */
+    double distanceMeters(int a, int b) {
+        return distanceMeters(latitude(a), longitude(a), b);
+    }
+
+    private double distanceMeters(double lat, double lon, int node) {
+        double nodeLat = latitude(node);
+        double dx = (longitude(node) - lon) * METERS_PER_DEGREE * Math.cos(Math.toRadians((lat + nodeLat) / 2));
+        double dy = (nodeLat - lat) * METERS_PER_DEGREE;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public static final class Builder {
+        private int[] latE6 = new int[64];
+        private int[] lonE6 = new int[64];
+        private int nodes;
+        private int[] from = new int[128];
+        private int[] to = new int[128];
+        private int[] timeMs = new int[128];
+        private int[] lengthM = new int[128];
+        private int edges;
+
+        public int addNode(double lat, double lon) {
+            if (nodes == latE6.length) {
+                latE6 = Arrays.copyOf(latE6, nodes * 2);
+                lonE6 = Arrays.copyOf(lonE6, nodes * 2);
+            }
+            latE6[nodes] = (int) Math.round(lat * 1e6);
+            lonE6[nodes] = (int) Math.round(lon * 1e6);
+            return nodes++;
+        }
+
+        /**
+         * Adds a one-way road segment. The length defaults to the straight-line distance when
+         * {@code lengthMeters} is not positive.
+         */
+        public void addEdge(int source, int target, int lengthMeters, double speedKph) {
+            if (edges == from.length) {
+                int capacity = edges * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                timeMs = Arrays.copyOf(timeMs, capacity);
+                lengthM = Arrays.copyOf(lengthM, capacity);
+            }
+            if (lengthMeters <= 0) {
+                double lat = (latE6[source] + latE6[target]) / 2e6;
+                double dx = (lonE6[source] - lonE6[target]) / 1e6 * METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+                double dy = (latE6[source] - latE6[target]) / 1e6 * METERS_PER_DEGREE;
+                lengthMeters = (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+            }
+            from[edges] = source;
+            to[edges] = target;
+            lengthM[edges] = lengthMeters;
+            timeMs[edges] = Math.max(1, (int) Math.round(lengthMeters / (speedKph / 3.6) * 1000));
+            edges++;
+        }
+
+        /** Adds a two-way road segment. */
+        public void addRoad(int a, int b, int lengthMeters, double speedKph) {
+            addEdge(a, b, lengthMeters, speedKph);
+            addEdge(b, a, lengthMeters, speedKph);
+        }
+
+        public RoadGraph build() {
+            // Counting sort of the edges by source node
+            int[] firstEdge = new int[nodes + 1];
+            for (int e = 0; e < edges; e++) {
+                firstEdge[from[e] + 1]++;
+            }
+            for (int n = 0; n < nodes; n++) {
+                firstEdge[n + 1] += firstEdge[n];
+            }
+            int[] next = Arrays.copyOf(firstEdge, nodes);
+            int[] target = new int[edges];
+            int[] time = new int[edges];
+            int[] length = new int[edges];
+            for (int e = 0; e < edges; e++) {
+                int slot = next[from[e]]++;
+                target[slot] = to[e];
+                time[slot] = timeMs[e];
+                length[slot] = lengthM[e];
+            }
+            double maxMetersPerMs = 0;
+            for (int e = 0; e < edges; e++) {
+                maxMetersPerMs = Math.max(maxMetersPerMs, (double) length[e] / time[e]);
+            }
+            return new RoadGraph(IntBuffer.wrap(firstEdge), IntBuffer.wrap(target), IntBuffer.wrap(time),
+                    IntBuffer.wrap(length), IntBuffer.wrap(Arrays.copyOf(latE6, nodes)),
+                    IntBuffer.wrap(Arrays.copyOf(lonE6, nodes)), maxMetersPerMs > 0 ? maxMetersPerMs : 1,
+                    null, null);
+        }
+    }
+}
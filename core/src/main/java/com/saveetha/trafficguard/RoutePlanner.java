@@ -0,0 +1,165 @@
+package com.saveetha.trafficguard;
+
+import java.util.Arrays;
+
+/**
+ * Fastest-route search over a {@link RoadGraph} with A*, using straight-line distance at the
+ * graph's top speed as the (admissible) heuristic. Search state is kept in primitive arrays that
+ * are reused across queries and reset lazily with a generation stamp, so a query allocates only
+ * its result.
+ *
+ * <p>Not thread-safe; use one planner per thread.
+ */
+public final class RoutePlanner {
+
+    private final RoadGraph graph;
+    private final int[] cost;       // Best known time from the origin, valid if stamp matches
+    private final int[] parentEdge; // Edge used to reach the node, -1 for the origin
+    private final int[] parentNode;
+    private final int[] stamp;
+    private int generation;
+
+    // Binary min-heap of (priority << 32 | node); stale entries are skipped when popped
+    private long[] heap = new long[1024];
+    private int heapSize;
+
+    public RoutePlanner(RoadGraph graph) {
+        this.graph = graph;
+        int nodes = graph.nodeCount();
+        this.cost = new int[nodes];
+        this.parentEdge = new int[nodes];
+        this.parentNode = new int[nodes];
+        this.stamp = new int[nodes];
+    }
+
+    /**
+     * The fastest route between the nodes nearest to the two locations, or null if there is none.
+     */
+    public Route route(double fromLat, double fromLon, double toLat, double toLon, TrafficPenalties traffic) {
+        int from = graph.nearestNode(fromLat, fromLon);
+        int to = graph.nearestNode(toLat, toLon);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        return route(from, to, traffic);
+    }
+
+    /**
+     * The fastest route between two nodes with {@code traffic} applied (may be null for free
+     * flow), or null if {@code to} cannot be reached.
+     */
+    public Route route(int from, int to, TrafficPenalties traffic) {
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        visit(from, 0, -1, -1);
+        push(heuristic(from, to), from);
+
+        while (heapSize > 0) {
+            long top = pop();
+            int node = (int) top;
+            int priority = (int) (top >>> 32);
+            if (priority > cost[node] + heuristic(node, to)) {
+                continue; // Stale entry, a cheaper one was already settled
+            }
+            if (node == to) {
+                return buildRoute(from, to);
+            }
+            int base = cost[node];
+            for (int e = graph.firstEdge(node); e < graph.firstEdge(node + 1); e++) {
+                int next = graph.edgeTarget(e);
+                int time = base + (traffic != null ? traffic.timeMs(e) : graph.edgeTimeMs(e));
+                if (stamp[next] != generation || time < cost[next]) {
+                    visit(next, time, e, node);
+                    push(time + heuristic(next, to), next);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void visit(int node, int time, int edge, int parent) {
+        stamp[node] = generation;
+        cost[node] = time;
+        parentEdge[node] = edge;
+        parentNode[node] = parent;
+    }
+
+    private int heuristic(int node, int target) {
+        return (int) (graph.distanceMeters(node, target) / graph.maxMetersPerMs);
+    }
+
+    private Route buildRoute(int from, int to) {
+        int hops = 0;
+        for (int n = to; n != from; n = parentNode[n]) {
+            hops++;
+        }
+        int[] nodes = new int[hops + 1];
+        int length = 0;
+        int n = to;
+        for (int i = hops; i >= 0; i--) {
+            nodes[i] = n;
+            if (n != from) {
+                length += graph.edgeLengthM(parentEdge[n]);
+                n = parentNode[n];
+            }
+        }
+        return new Route(nodes, cost[to], length);
+    }
+
+    private void push(int priority, int node) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = ((long) priority << 32) | (node & 0xFFFFFFFFL);
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    /**
+     * A route as the nodes it passes through, origin first.
+     */
+    public static final class Route {
+        public final int[] nodes;
+        public final int travelTimeMs;
+        public final int lengthMeters;
+
+        Route(int[] nodes, int travelTimeMs, int lengthMeters) {
+            this.nodes = nodes;
+            this.travelTimeMs = travelTimeMs;
+            this.lengthMeters = lengthMeters;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.saveetha.trafficguard;
+
+/**
+ * Uniform grid of square lat/lon tiles over a region, numbered row by row from the south-west
+ * corner. Region files keep nodes and POIs sorted by tile so the ones around the user sit
+ * together on disk.
+ */
+public final class TileGrid {
+
+    public final double minLat;
+    public final double minLon;
+    public final double tileDegrees;
+    public final int cols;
+    public final int rows;
+
+    public TileGrid(double minLat, double minLon, double tileDegrees, int cols, int rows) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.tileDegrees = tileDegrees;
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    /**
+     * The smallest grid of {@code tileDegrees} tiles covering the given bounds.
+     */
+    public static TileGrid covering(double minLat, double minLon, double maxLat, double maxLon, double tileDegrees) {
+        int cols = (int) Math.floor((maxLon - minLon) / tileDegrees) + 1;
+        int rows = (int) Math.floor((maxLat - minLat) / tileDegrees) + 1;
+        return new TileGrid(minLat, minLon, tileDegrees, cols, rows);
+    }
+
+    public int tileCount() {
+        return cols * rows;
+    }
+
+    /** Column of the tile containing {@code lon}, clamped to the grid. */
+    public int col(double lon) {
+        return clamp((int) Math.floor((lon - minLon) / tileDegrees), cols);
+    }
+
+    /** Row of the tile containing {@code lat}, clamped to the grid. */
+    public int row(double lat) {
+        return clamp((int) Math.floor((lat - minLat) / tileDegrees), rows);
+    }
+
+    public int tile(double lat, double lon) {
+        return row(lat) * cols + col(lon);
+    }
+
+    /** Height of a tile in metres; its width is never more than this. */
+    public double tileMeters() {
+        return tileDegrees * RoadGraph.METERS_PER_DEGREE;
+    }
+
+    private static int clamp(int index, int count) {
+        return index < 0 ? 0 : Math.min(index, count - 1);
+    }
+}
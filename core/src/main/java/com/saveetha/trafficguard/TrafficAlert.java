@@ -0,0 +1,93 @@
+package com.saveetha.trafficguard;
+
+/**
+ * A traffic alert parsed from a feed line of the form {@code title|time|location|...}.
+ */
+public final class TrafficAlert implements FeedItem {
+
+    public enum Status {
+        HEAVY(0xFFFF0000),    // Color.RED
+        ACCIDENT(0xFFFFFF00), // Color.YELLOW
+        CLEAR(0xFF00FF00),    // Color.GREEN
+        OTHER(0xFF888888);    // Color.GRAY
+
+        public final int color;
+
+        Status(int color) {
+            this.color = color;
+        }
+
+        static Status of(String word) {
+            switch (word) {
+                case "Heavy":
+                    return HEAVY;
+                case "Accident":
+                    return ACCIDENT;
+                case "Clear":
+                    return CLEAR;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    public final long id;
+    public final String title;
+    public final String time;
+    public final String location;
+    public final String details;     // "location · time[ · N% congested]", as shown under the title
+    public final String statusLabel; // First word of the title
+    public final Status status;
+    public final int congestion;     // CongestionAggregator score for the location when loaded, 0-100
+
+    TrafficAlert(long id, String title, String time, String location) {
+        this(id, title, time, location, 0);
+    }
+
+    private TrafficAlert(long id, String title, String time, String location, int congestion) {
+        this.id = id;
+        this.title = title;
+        this.time = time;
+        this.location = location;
+        this.congestion = congestion;
+        this.details = congestion > 0
+                ? location + " · " + time + " · " + congestion + "% congested"
+                : location + " · " + time;
+        int space = title.indexOf(' ');
+        this.statusLabel = space >= 0 ? title.substring(0, space) : title;
+        this.status = Status.of(statusLabel);
+    }
+
+    /**
+     * This alert showing {@code congestion} in its details.
+     */
+    TrafficAlert withCongestion(int congestion) {
+        return congestion == this.congestion ? this : new TrafficAlert(id, title, time, location, congestion);
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    public int getStatusColor() {
+        return status.color;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TrafficAlert)) return false;
+        TrafficAlert other = (TrafficAlert) o;
+        return id == other.id
+                && title.equals(other.title)
+                && time.equals(other.time)
+                && location.equals(other.location)
+                && congestion == other.congestion;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id) * 31 + title.hashCode();
+    }
+}
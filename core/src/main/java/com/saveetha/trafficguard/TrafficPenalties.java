@@ -0,0 +1,76 @@
+package com.saveetha.trafficguard;
+
+import java.util.Arrays;
+
+/**
+ * Live traffic slowdowns on top of a {@link RoadGraph}'s free-flow times, as a per-edge
+ * multiplier. Alerts from the feed slow every edge leaving the nodes near them; the strongest
+ * slowdown on an edge wins.
+ *
+ * <p>Not thread-safe: update it from one thread and hand planners a {@link #copy()}.
+ */
+public final class TrafficPenalties {
+
+    static final float HEAVY = 3f;
+    static final float ACCIDENT = 6f;
+
+    private final RoadGraph graph;
+    private final float[] factor;
+    private int[] nodes = new int[256]; // Grown until a query fits
+
+    public TrafficPenalties(RoadGraph graph) {
+        this.graph = graph;
+        this.factor = new float[graph.edgeCount()];
+        Arrays.fill(factor, 1f);
+    }
+
+    private TrafficPenalties(RoadGraph graph, float[] factor) {
+        this.graph = graph;
+        this.factor = factor;
+    }
+
+    /**
+     * Slows the roads within {@code radiusMeters} of an alert according to its status. Clear
+     * alerts lift any slowdown there.
+     */
+    public void apply(TrafficAlert.Status status, double lat, double lon, double radiusMeters) {
+        float slowdown;
+        switch (status) {
+            case HEAVY:
+                slowdown = HEAVY;
+                break;
+            case ACCIDENT:
+                slowdown = ACCIDENT;
+                break;
+            case CLEAR:
+                slowdown = 1f;
+                break;
+            default:
+                return;
+        }
+        int count;
+        while ((count = graph.nodesWithin(lat, lon, radiusMeters, nodes)) == nodes.length
+                && nodes.length < graph.nodeCount()) {
+            nodes = new int[Math.min(nodes.length * 2, graph.nodeCount())];
+        }
+        for (int i = 0; i < count; i++) {
+            int node = nodes[i];
+            for (int e = graph.firstEdge(node); e < graph.firstEdge(node + 1); e++) {
+                factor[e] = status == TrafficAlert.Status.CLEAR ? 1f : Math.max(factor[e], slowdown);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(factor, 1f);
+    }
+
+    public TrafficPenalties copy() {
+        return new TrafficPenalties(graph, factor.clone());
+    }
+
+    /** Travel time of an edge in milliseconds with traffic applied. Never below free flow. */
+    int timeMs(int edge) {
+        return (int) (graph.edgeTimeMs(edge) * factor[edge]);
+    }
+}
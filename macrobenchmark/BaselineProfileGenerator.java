@@ -0,0 +1,46 @@
+package com.saveetha.trafficguard.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import kotlin.Unit;
+
+/**
+ * Collects the baseline profile for the benchmarked journeys: first launch and onboarding,
+ * login, and scrolling the feed when a test account is passed. The classes and methods these
+ * touch ship AOT-compiled. Copy the generated profile to the app's
+ * {@code src/main/baseline-prof.txt}.
+ */
+@RunWith(JUnit4.class)
+public class BaselineProfileGenerator {
+
+    private static final int MAX_ITERATIONS = 15;
+    private static final int STABLE_ITERATIONS = 3;
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(Journeys.PACKAGE, MAX_ITERATIONS, STABLE_ITERATIONS, null, true, false,
+                method -> true,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    Journeys.startOnboarding(scope);
+                    Journeys.pageThroughOnboarding(scope);
+                    if (Journeys.hasAccount()) {
+                        Journeys.logIn(scope);
+                        Journeys.scrollFeed(scope);
+                        // Relaunch as a returning user so the splash routing is covered too
+                        scope.pressHome();
+                        scope.killProcess();
+                        scope.startActivityAndWait();
+                    }
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,62 @@
+package com.saveetha.trafficguard.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Frame durations and jank while flinging the alert feed and while paging through onboarding.
+ */
+@RunWith(JUnit4.class)
+public class FrameTimingBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void scrollFeed() {
+        Assume.assumeTrue("Needs -e email and -e password", Journeys.hasAccount());
+        rule.measureRepeated(Journeys.PACKAGE, Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0), StartupMode.WARM, ITERATIONS,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    Journeys.startOnboarding(scope);
+                    Journeys.pageThroughOnboarding(scope);
+                    Journeys.logIn(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.scrollFeed(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void pageThroughOnboarding() {
+        rule.measureRepeated(Journeys.PACKAGE, Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require, 0), StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    Journeys.startOnboarding(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.pageThroughOnboarding(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,103 @@
+package com.saveetha.trafficguard.benchmark;
+
+import android.os.Bundle;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/**
+ * The user journeys the benchmarks and the baseline profile share. Screens are found by view id,
+ * so a renamed id fails here first.
+ *
+ * <p>Journeys past login need a verified test account, passed as instrumentation arguments:
+ * {@code -e email ... -e password ...}.
+ */
+final class Journeys {
+
+    static final String PACKAGE = "com.saveetha.trafficguard";
+
+    private static final long TIMEOUT_MS = 10_000;
+    private static final int FLINGS = 4;
+
+    private Journeys() {
+    }
+
+    /** Test account email, or null when none was passed. */
+    static String email() {
+        return arguments().getString("email");
+    }
+
+    static String password() {
+        return arguments().getString("password");
+    }
+
+    static boolean hasAccount() {
+        return email() != null && password() != null;
+    }
+
+    /** Forgets onboarding and sign-in, so the next launch is a first launch. */
+    static void clearAppData(MacrobenchmarkScope scope) {
+        scope.getDevice().executeShellCommand("pm clear " + PACKAGE);
+    }
+
+    /** Launches and waits for the onboarding pager. */
+    static void startOnboarding(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait();
+        wait(scope.getDevice(), "viewPager");
+    }
+
+    /**
+     * Walks the onboarding pages one by one to the end and finishes it, which lands on login.
+     */
+    static void pageThroughOnboarding(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        for (int page = 0; page < 2; page++) {
+            wait(device, "continueBtn").click();
+            device.waitForIdle();
+        }
+        wait(device, "getStartedBtn").click();
+        wait(device, "loginButton");
+    }
+
+    /** Logs in with the test account from the login screen and waits for the feed. */
+    static void logIn(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        wait(device, "emailInput").setText(email());
+        wait(device, "passwordInput").setText(password());
+        wait(device, "loginButton").click();
+        wait(device, "recycler_view");
+    }
+
+    /** Flings the visible feed list down and back up. */
+    static void scrollFeed(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = wait(device, "recycler_view");
+        // Keep the gesture clear of the system navigation areas
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        for (int i = 0; i < FLINGS; i++) {
+            list.fling(Direction.DOWN);
+            device.waitForIdle();
+        }
+        for (int i = 0; i < FLINGS; i++) {
+            list.fling(Direction.UP);
+            device.waitForIdle();
+        }
+    }
+
+    private static UiObject2 wait(UiDevice device, String id) {
+        UiObject2 view = device.wait(Until.findObject(By.res(PACKAGE, id)), TIMEOUT_MS);
+        if (view == null) {
+            throw new AssertionError("View " + id + " did not appear");
+        }
+        return view;
+    }
+
+    private static Bundle arguments() {
+        return InstrumentationRegistry.getArguments();
+    }
+}
@@ -0,0 +1,118 @@
+package com.saveetha.trafficguard.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Time to initial and full display for the three launch routes: a first launch showing
+ * onboarding, a returning user routed to login, and a signed-in user routed to the feed. Each
+ * runs with and without the baseline profile, so the profile's effect shows up next to the
+ * regression numbers. Only the signed-in route also runs warm: the other two clear the app's
+ * data before every iteration, which kills the process and would make a warm start cold.
+ */
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Parameterized.Parameters(name = "{0},{2}")
+    public static List<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{
+                {"cold", StartupMode.COLD, "noProfile", new CompilationMode.None()},
+                {"cold", StartupMode.COLD, "profile", new CompilationMode.Partial(BaselineProfileMode.Require, 0)},
+                {"warm", StartupMode.WARM, "noProfile", new CompilationMode.None()},
+                {"warm", StartupMode.WARM, "profile", new CompilationMode.Partial(BaselineProfileMode.Require, 0)},
+        });
+    }
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    private final StartupMode startupMode;
+    private final CompilationMode compilationMode;
+    private boolean signedIn;
+
+    public StartupBenchmark(String startupName, StartupMode startupMode, String compilationName,
+                            CompilationMode compilationMode) {
+        this.startupMode = startupMode;
+        this.compilationMode = compilationMode;
+    }
+
+    @Test
+    public void firstLaunch() {
+        assumeCold();
+        rule.measureRepeated(Journeys.PACKAGE, Collections.singletonList(new StartupTimingMetric()),
+                compilationMode, startupMode, ITERATIONS,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.startOnboarding(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void returningUserToLogin() {
+        assumeCold();
+        rule.measureRepeated(Journeys.PACKAGE, Collections.singletonList(new StartupTimingMetric()),
+                compilationMode, startupMode, ITERATIONS,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    Journeys.startOnboarding(scope);
+                    Journeys.pageThroughOnboarding(scope);
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    // Routed past onboarding from the splash screen
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    // Journeys that start from cleared data can only be measured cold
+    private void assumeCold() {
+        Assume.assumeTrue("Clears app data, so only a cold start", startupMode == StartupMode.COLD);
+    }
+
+    @Test
+    public void signedInUserToFeed() {
+        Assume.assumeTrue("Needs -e email and -e password", Journeys.hasAccount());
+        rule.measureRepeated(Journeys.PACKAGE, Collections.singletonList(new StartupTimingMetric()),
+                compilationMode, startupMode, ITERATIONS,
+                scope -> {
+                    // Signed in once per parameterisation; clearing data every time would kill
+                    // the process a warm start relies on
+                    if (!signedIn) {
+                        Journeys.clearAppData(scope);
+                        Journeys.startOnboarding(scope);
+                        Journeys.pageThroughOnboarding(scope);
+                        Journeys.logIn(scope);
+                        signedIn = true;
+                    }
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -1,30 +1,32 @@
 package com.saveetha.trafficguard;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.splashscreen.SplashScreen;
 import androidx.viewpager2.widget.ViewPager2;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class OnboardingActivity extends AppCompatActivity {
+public class OnboardingActivity extends AppCompatActivity implements OnboardingPages.Host {
 
     private ViewPager2 viewPager;
     private OnboardingAdapter adapter;
-    private static final String PREFS_NAME = "app_prefs";
-    private static final String KEY_ONBOARDING_COMPLETED = "onboarding_completed";
-    private FirebaseAuth mAuth;
+    private OnboardingPages pages;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // Route before anything is inflated; returning users never see this activity's content
+        SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
         super.onCreate(savedInstanceState);
+        Intent destination = LaunchRouter.destination(this);
+        if (destination != null) {
+            // Keep the splash up until the destination draws, instead of flashing an empty window
+            splashScreen.setKeepOnScreenCondition(() -> true);
+            navigate(destination);
+            return;
+        }
+
         if (getSupportActionBar() != null) {
             getSupportActionBar().hide();
         }
@@ -33,17 +35,9 @@ public class OnboardingActivity extends AppCompatActivity {
                 getWindow().getDecorView().getSystemUiVisibility() | View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR
         );
 
-        // Initialize Firebase
-        mAuth = FirebaseAuth.getInstance();
-
-        // Check if onboarding is already completed
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        boolean onboardingCompleted = prefs.getBoolean(KEY_ONBOARDING_COMPLETED, false);
-        if (onboardingCompleted) {
-            navigateBasedOnAuthStatus();
-            return;
-        }
-
+        // The first page inflates in the background while the activity's own layout does
+        pages = new OnboardingPages(this);
+        pages.preloadNow(1);
         setContentView(R.layout.activity_onboarding);
 
         viewPager = findViewById(R.id.viewPager);
@@ -51,12 +45,7 @@ public class OnboardingActivity extends AppCompatActivity {
     }
 
     private void setupViewPager() {
-        List<OnboardingFragment> fragments = new ArrayList<>();
-        fragments.add(OnboardingFragment.newInstance(1));
-        fragments.add(OnboardingFragment.newInstance(2));
-        fragments.add(OnboardingFragment.newInstance(3));
-
-        adapter = new OnboardingAdapter(this, fragments);
+        adapter = new OnboardingAdapter(this);
         viewPager.setAdapter(adapter);
         viewPager.setUserInputEnabled(false); // Disable manual scrolling
 
@@ -64,10 +53,8 @@ public class OnboardingActivity extends AppCompatActivity {
             @Override
             public void onPageSelected(int position) {
                 super.onPageSelected(position);
-                // Update dots in all fragments
-                for (OnboardingFragment fragment : fragments) {
-                    fragment.updateDots(position);
-                }
+                // Pages are numbered from 1; get the one after this ready before it is swiped to
+                pages.preload(position + 2);
             }
         });
     }
@@ -85,29 +72,29 @@ public class OnboardingActivity extends AppCompatActivity {
 
     public void finishOnboarding() {
         // Mark onboarding as completed
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        prefs.edit().putBoolean(KEY_ONBOARDING_COMPLETED, true).apply();
+        LaunchRouter.markOnboardingCompleted(this);
 
         // Navigate to MainActivity
-        navigateBasedOnAuthStatus();
+        navigate(LaunchRouter.afterOnboarding(this));
     }
 
-    private void navigateBasedOnAuthStatus() {
-        FirebaseUser currentUser = mAuth.getCurrentUser();
-        Intent intent;
-        if (currentUser != null && currentUser.isEmailVerified()) {
-            intent = new Intent(this, MainActivity.class);
-            intent.putExtra("email", currentUser.getEmail());
-            intent.putExtra("uid", currentUser.getUid());
-        } else {
-            intent = new Intent(this, LoginActivity.class);
-        }
+    private void navigate(Intent intent) {
+        LaunchRouter.logRouted(intent);
         startActivity(intent);
         finish();
         overridePendingTransition(R.anim.no_animation, R.anim.fade_out_fast);
     }
 
-    public ViewPager2 getViewPager() {
-        return viewPager;
+    @Override
+    public OnboardingPages getOnboardingPages() {
+        return pages;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pages != null) {
+            pages.release();
+        }
     }
 }
@@ -2,50 +2,43 @@ package com.saveetha.trafficguard;
 
 import android.app.ProgressDialog;
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.util.Patterns;
-import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
-import android.view.animation.Animation;
-import android.view.animation.AnimationSet;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.airbnb.lottie.LottieAnimationView;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
-import com.google.firebase.FirebaseApp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class SignUpActivity extends AppCompatActivity {
 
     private static final String TAG = "SignUpActivity";
+    private static final Metrics.Histogram EMAIL_VERIFICATION = Metrics.histogram("signup.emailVerification");
     private FirebaseAuth mAuth;
-    private DatabaseReference mDatabase;
     private EditText etName, etEmail, etPassword, etConfirmPassword;
     private Button btnSignUp;
-    private Handler handler;
-    private Runnable verificationCheckRunnable;
+    private EmailVerificationWatcher verificationWatcher;
     private BottomSheetDialog verificationDialog;
     private ProgressDialog progressDialog;
     private LayoutInflater inflater;
+    private InAppToast toast;
+    private String messageForLogin;
+    private long verificationSentAt; // From Metrics.start()
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,12 +52,11 @@ public class SignUpActivity extends AppCompatActivity {
                 getWindow().getDecorView().getSystemUiVisibility() | View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR
         );
 
-        // Initialize Firebase
-        FirebaseApp.initializeApp(this);
+        // Firebase is initialised once in MyApplication
         mAuth = FirebaseAuth.getInstance();
-        mDatabase = FirebaseDatabase.getInstance().getReference("users");
-        handler = new Handler(Looper.getMainLooper());
         inflater = getLayoutInflater();
+        toast = new InAppToast(this);
+        verificationWatcher = new EmailVerificationWatcher(mAuth, this::onEmailVerified);
 
         // Initialize preloader
         progressDialog = new ProgressDialog(this);
@@ -72,6 +64,14 @@ public class SignUpActivity extends AppCompatActivity {
         progressDialog.setCancelable(false);
 
         initializeViews();
+
+        // Opened from the verification link after the activity was gone; pick up where we were
+        Uri link = getIntent().getData();
+        if (link != null && mAuth.getCurrentUser() != null) {
+            showVerificationDialog();
+            startVerificationCheck();
+            verificationWatcher.handleLink(link);
+        }
     }
 
     private void initializeViews() {
@@ -164,7 +164,7 @@ public class SignUpActivity extends AppCompatActivity {
             }
 
             // Strong password validation (min 8, upper, lower, digit, symbol)
-            String pwdError = validatePassword(password, confirmPassword);
+            String pwdError = PasswordPolicy.validate(password, confirmPassword);
             if (pwdError != null) {
                 showCustomToast(pwdError);
                 return;
@@ -180,36 +180,29 @@ public class SignUpActivity extends AppCompatActivity {
                         if (createTask.isSuccessful()) {
                             FirebaseUser currentUser = mAuth.getCurrentUser();
                             if (currentUser != null) {
-                                Log.d(TAG, "createUserWithEmailAndPassword successful");
-                                // Save user data to Realtime Database
+                                AppLog.d(TAG, "createUserWithEmailAndPassword successful");
+                                // Save user data to Realtime Database; the database queues it, so it doesn't hold up the email.
+                                // Sent now, while the user is signed in; a failed email signs them out
                                 String uid = currentUser.getUid();
-                                User user = new User(name, email, uid);
-                                mDatabase.child(uid).setValue(user)
-                                        .addOnCompleteListener(dbTask -> {
-                                            if (dbTask.isSuccessful()) {
-                                                Log.d(TAG, "User data saved to Realtime Database");
-                                                sendVerificationEmail();
-                                            } else {
-                                                btnSignUp.setEnabled(true);
-                                                showCustomToast("Failed to save user data: " + (dbTask.getException() != null ? dbTask.getException().getMessage() : "Unknown error"));
-                                                Log.e(TAG, "Failed to save user data", dbTask.getException());
-                                                mAuth.signOut();
-                                            }
-                                        });
+                                ProfileWriteQueue writes = ProfileWriteQueue.getInstance(this);
+                                writes.enqueue(uid, "users/" + uid, new User(name, email, uid).toMap());
+                                writes.flushNow();
+                                SessionStore.getInstance(this).setName(uid, name);
+                                sendVerificationEmail();
                             } else {
                                 btnSignUp.setEnabled(true);
                                 showCustomToast("Authentication failed: No user found");
-                                Log.e(TAG, "Authentication failed: No user found");
+                                AppLog.e(TAG, "Authentication failed: No user found");
                             }
                         } else {
                             btnSignUp.setEnabled(true);
                             Exception e = createTask.getException();
                             if (e instanceof FirebaseAuthInvalidCredentialsException) {
                                 showCustomToast("Invalid email or password");
-                                Log.e(TAG, "Invalid credentials", e);
+                                AppLog.e(TAG, "Invalid credentials", e);
                             } else {
                                 showCustomToast("Sign-up failed: " + (e != null ? e.getMessage() : "Unknown error"));
-                                Log.e(TAG, "Sign-up failed", e);
+                                AppLog.e(TAG, "Sign-up failed", e);
                             }
                         }
                     })
@@ -218,16 +211,21 @@ public class SignUpActivity extends AppCompatActivity {
                         hideProgressDialog();
                         btnSignUp.setEnabled(true);
                         showCustomToast("Sign-up failed: " + e.getMessage());
-                        Log.e(TAG, "createUserWithEmailAndPassword failure", e);
+                        AppLog.e(TAG, "createUserWithEmailAndPassword failure", e);
                     });
         });
 
         tvLoginLink.setOnClickListener(v -> {
             Intent intent = new Intent(SignUpActivity.this, LoginActivity.class);
+            if (messageForLogin != null) {
+                // This activity is finishing; the login screen shows it instead
+                InAppToast.carry(intent, messageForLogin);
+                messageForLogin = null;
+            }
             startActivity(intent);
             finish();
             overridePendingTransition(R.anim.no_animation, R.anim.fade_out_fast);
-            Log.d(TAG, "Navigating to LoginActivity");
+            AppLog.d(TAG, "Navigating to LoginActivity");
         });
     }
 
@@ -236,48 +234,6 @@ public class SignUpActivity extends AppCompatActivity {
             progressDialog.show();
         }
     }
-    private String validatePassword(String password, String confirmPassword) {
-        if (password == null || password.isEmpty()) {
-            return "Please enter password";
-        }
-        if (confirmPassword == null || confirmPassword.isEmpty()) {
-            return "Please confirm your password";
-        }
-        if (!password.equals(confirmPassword)) {
-            return "Passwords do not match";
-        }
-
-        StringBuilder errorBuilder = new StringBuilder();
-
-        if (password.length() < 8) {
-            errorBuilder.append("• At least 8 characters long\n");
-        }
-
-        boolean hasUpper = false;
-        boolean hasLower = false;
-        boolean hasDigit = false;
-        boolean hasSymbol = false;
-
-        for (int i = 0; i < password.length(); i++) {
-            char c = password.charAt(i);
-            if (Character.isUpperCase(c)) hasUpper = true;
-            else if (Character.isLowerCase(c)) hasLower = true;
-            else if (Character.isDigit(c)) hasDigit = true;
-            else hasSymbol = true;
-        }
-
-        if (!hasUpper) errorBuilder.append("• At least one uppercase letter\n");
-        if (!hasLower) errorBuilder.append("• At least one lowercase letter\n");
-        if (!hasDigit) errorBuilder.append("• At least one number\n");
-        if (!hasSymbol) errorBuilder.append("• At least one special symbol (e.g. !@#$%^&*)\n");
-
-        if (errorBuilder.length() > 0) {
-            return "Password must contain:\n" + errorBuilder.toString().trim();
-        }
-
-        return null; // valid
-    }
-
 
     private void hideProgressDialog() {
         if (progressDialog.isShowing()) {
@@ -291,19 +247,20 @@ public class SignUpActivity extends AppCompatActivity {
             currentUser.sendEmailVerification()
                     .addOnCompleteListener(task -> {
                         if (task.isSuccessful()) {
-                            Log.d(TAG, "Verification email sent to: " + currentUser.getEmail());
+                            AppLog.d(TAG, "Verification email sent to: {}", AppLog.pii(currentUser.getEmail()));
+                            verificationSentAt = Metrics.start();
                             runOnUiThread(this::showVerificationDialog);
                             startVerificationCheck();
                         } else {
                             showCustomToast("Failed to send verification email: " + task.getException().getMessage());
-                            Log.e(TAG, "Failed to send verification email", task.getException());
+                            AppLog.e(TAG, "Failed to send verification email", task.getException());
                             btnSignUp.setEnabled(true);
                             mAuth.signOut();
                         }
                     });
         } else {
             showCustomToast("No user signed in");
-            Log.e(TAG, "No user signed in for email verification");
+            AppLog.e(TAG, "No user signed in for email verification");
             btnSignUp.setEnabled(true);
         }
     }
@@ -346,26 +303,29 @@ public class SignUpActivity extends AppCompatActivity {
             etConfirmPassword.setHintTextColor(getResources().getColor(android.R.color.darker_gray));
             btnSignUp.setText("Sign Up");
             btnSignUp.setEnabled(true);
-            if (handler != null && verificationCheckRunnable != null) {
-                handler.removeCallbacks(verificationCheckRunnable);
-                verificationCheckRunnable = null;
-            }
-            Log.d(TAG, "Verification dialog dismissed, fields and button reset");
+            verificationWatcher.stop();
+            AppLog.d(TAG, "Verification dialog dismissed, fields and button reset");
             // Navigate back to LoginActivity on dismiss
             Intent intent = new Intent(SignUpActivity.this, LoginActivity.class);
+            if (messageForLogin != null) {
+                // This activity is finishing; the login screen shows it instead
+                InAppToast.carry(intent, messageForLogin);
+                messageForLogin = null;
+            }
             startActivity(intent);
             finish();
             overridePendingTransition(R.anim.no_animation, R.anim.fade_out_fast);
         });
 
         btnContinue.setOnClickListener(v -> {
-            verificationDialog.dismiss();
             FirebaseUser currentUser = mAuth.getCurrentUser();
+            if (currentUser == null) {
+                messageForLogin = "No user signed in";
+                AppLog.e(TAG, "No user signed in after verification");
+            }
+            verificationDialog.dismiss();
             if (currentUser != null) {
                 navigateToPreSetup(currentUser.getEmail(), currentUser.getUid());
-            } else {
-                showCustomToast("No user signed in");
-                Log.e(TAG, "No user signed in after verification");
             }
         });
 
@@ -379,119 +339,60 @@ public class SignUpActivity extends AppCompatActivity {
         intent.putExtra("email", email);
         intent.putExtra("uid", uid);
         startActivity(intent);
-        Log.d(TAG, "Navigating to MainActivity with email: " + email + ", UID: " + uid);
+        AppLog.d(TAG, "Navigating to MainActivity with email: {}, UID: {}", AppLog.pii(email), AppLog.pii(uid));
         finish();
         overridePendingTransition(R.anim.no_animation, R.anim.fade_out_fast);
     }
 
     private void startVerificationCheck() {
-        if (verificationCheckRunnable != null) {
-            handler.removeCallbacks(verificationCheckRunnable);
-            verificationCheckRunnable = null;
-        }
-        verificationCheckRunnable = new Runnable() {
-            @Override
-            public void run() {
-                FirebaseUser currentUser = mAuth.getCurrentUser();
-                if (currentUser != null && verificationDialog != null && verificationDialog.isShowing()) {
-                    currentUser.reload().addOnCompleteListener(task -> {
-                        if (task.isSuccessful() && currentUser.isEmailVerified()) {
-                            runOnUiThread(() -> {
-                                View dialogView = verificationDialog.findViewById(android.R.id.content);
-                                if (dialogView != null) {
-                                    LottieAnimationView lottieAnimation = dialogView.findViewById(R.id.lottie_mail_sent);
-                                    if (lottieAnimation != null) {
-                                        lottieAnimation.setAnimation(R.raw.success);
-                                        lottieAnimation.playAnimation();
-                                    }
-                                    Button btnContinue = dialogView.findViewById(R.id.btn_continue);
-                                    if (btnContinue != null) {
-                                        btnContinue.setEnabled(true);
-                                    }
-                                    btnSignUp.setEnabled(true);
-                                    Log.d(TAG, "Email verified for: " + currentUser.getEmail());
-                                }
-                            });
-                        } else {
-                            handler.postDelayed(this, 500);
-                            Log.d(TAG, "Email not yet verified for: " + (currentUser != null ? currentUser.getEmail() : "null"));
-                        }
-                    }).addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to reload user: " + e.getMessage());
-                        handler.postDelayed(this, 500);
-                    });
-                } else {
-                    handler.postDelayed(this, 500);
-                    Log.w(TAG, "No user or dialog not showing for verification check");
-                }
-            }
-        };
-        handler.post(verificationCheckRunnable);
+        verificationWatcher.start();
     }
 
-    private void showCustomToast(String message) {
-        View toastView = inflater.inflate(R.layout.custom_toast, null);
-        TextView textView = toastView.findViewById(R.id.toast_text);
-        textView.setText(message);
-        View progressLine = toastView.findViewById(R.id.progress_line);
-        progressLine.setScaleX(1f);
-        progressLine.setVisibility(View.VISIBLE);
-
-        Toast toast = new Toast(this);
-        toast.setGravity(Gravity.BOTTOM | Gravity.END, 16, 50);
-        toast.setDuration(Toast.LENGTH_LONG);
-        toast.setView(toastView);
-
-        toastView.clearAnimation();
-        progressLine.clearAnimation();
-
-        AnimationSet animationSet = new AnimationSet(true);
-        animationSet.setInterpolator(new LinearInterpolator());
-
-        TranslateAnimation openAnim = new TranslateAnimation(
-                Animation.RELATIVE_TO_PARENT, 1f,
-                Animation.RELATIVE_TO_PARENT, 0f,
-                Animation.RELATIVE_TO_PARENT, 0f,
-                Animation.RELATIVE_TO_PARENT, 0f);
-        openAnim.setDuration(100);
-        animationSet.addAnimation(openAnim);
-
-        ScaleAnimation progressAnim = new ScaleAnimation(
-                1f, 0f, 1f, 1f,
-                Animation.RELATIVE_TO_SELF, 0f,
-                Animation.RELATIVE_TO_SELF, 0.5f);
-        progressAnim.setDuration(1500);
-        progressAnim.setInterpolator(new LinearInterpolator());
-        progressAnim.setAnimationListener(new Animation.AnimationListener() {
-            @Override
-            public void onAnimationStart(Animation animation) {}
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                progressLine.setVisibility(View.GONE);
-                toastView.setVisibility(View.GONE);
+    private void onEmailVerified(FirebaseUser currentUser) {
+        EMAIL_VERIFICATION.recordSince(verificationSentAt);
+        verificationSentAt = 0;
+        if (verificationDialog == null || !verificationDialog.isShowing()) {
+            return;
+        }
+        View dialogView = verificationDialog.findViewById(android.R.id.content);
+        if (dialogView != null) {
+            LottieAnimationView lottieAnimation = dialogView.findViewById(R.id.lottie_mail_sent);
+            if (lottieAnimation != null) {
+                lottieAnimation.setAnimation(R.raw.success);
+                lottieAnimation.playAnimation();
             }
-            @Override
-            public void onAnimationRepeat(Animation animation) {}
-        });
-        progressLine.startAnimation(progressAnim);
+            Button btnContinue = dialogView.findViewById(R.id.btn_continue);
+            if (btnContinue != null) {
+                btnContinue.setEnabled(true);
+            }
+            btnSignUp.setEnabled(true);
+            AppLog.d(TAG, "Email verified for: {}", AppLog.pii(currentUser.getEmail()));
+        }
+    }
 
-        toastView.startAnimation(animationSet);
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        // Verification link opened while the dialog is up
+        verificationWatcher.handleLink(intent.getData());
+    }
 
-        handler.postDelayed(() -> {
-            toast.cancel();
-            progressLine.clearAnimation();
-            toastView.clearAnimation();
-        }, 1600);
+    private void showCustomToast(String message) {
+        toast.show(message);
+    }
 
-        toast.show();
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        super.onWindowFocusChanged(hasFocus);
+        toast.onWindowFocusChanged(hasFocus);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (handler != null && verificationCheckRunnable != null) {
-            handler.removeCallbacks(verificationCheckRunnable);
-            verificationCheckRunnable = null;
+        toast.release();
+        if (verificationWatcher != null) {
+            verificationWatcher.stop();
         }
         if (verificationDialog != null && verificationDialog.isShowing()) {
             verificationDialog.dismiss();
@@ -518,5 +419,13 @@ public class SignUpActivity extends AppCompatActivity {
             this.email = email;
             this.uid = uid;
         }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> values = new HashMap<>();
+            values.put("name", name);
+            values.put("email", email);
+            values.put("uid", uid);
+            return values;
+        }
     }
 }